@@ -0,0 +1,225 @@
+package org.addy.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.Charset;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+public final class AsyncFileUtil {
+	static final AsyncFileUtil DEFAULT = new AsyncFileUtil(null);
+
+	private static final Set<StandardOpenOption> READ_OPTIONS = EnumSet.of(StandardOpenOption.READ);
+	private static final Set<StandardOpenOption> WRITE_OPTIONS =
+			EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+	private static final Set<StandardOpenOption> APPEND_OPTIONS =
+			EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+
+	private final ExecutorService executor;
+
+	AsyncFileUtil(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public CompletableFuture<byte[]> readAllBytes(Path path) {
+		AsynchronousFileChannel channel = null;
+
+		try {
+			channel = open(path, READ_OPTIONS);
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE - 8)
+				throw new IOException("File too large to read into an array: " + path);
+
+			CompletableFuture<byte[]> future = new CompletableFuture<>();
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			AsynchronousFileChannel reader = channel;
+			reader.read(buffer, 0, 0L, new CompletionHandler<>() {
+				@Override
+				public void completed(Integer amount, Long position) {
+					if (amount >= 0 && buffer.hasRemaining()) {
+						reader.read(buffer, position + amount, position + amount, this);
+						return;
+					}
+
+					byte[] bytes = buffer.array();
+					complete(reader, future, buffer.position() == bytes.length ? bytes : Arrays.copyOf(bytes, buffer.position()));
+				}
+
+				@Override
+				public void failed(Throwable e, Long position) {
+					fail(reader, future, e);
+				}
+			});
+
+			return future;
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(close(channel, e));
+		}
+	}
+
+	public CompletableFuture<byte[]> readAllBytes(File file) {
+		return readAllBytes(file.toPath());
+	}
+
+	public CompletableFuture<String> readAllText(Path path, Charset charset) {
+		return readAllBytes(path).thenApply(bytes -> new String(bytes, charset));
+	}
+
+	public CompletableFuture<String> readAllText(File file, Charset charset) {
+		return readAllText(file.toPath(), charset);
+	}
+
+	public CompletableFuture<Void> writeAllBytes(Path path, byte[] bytes, boolean append) {
+		AsynchronousFileChannel channel = null;
+
+		try {
+			channel = open(path, append ? APPEND_OPTIONS : WRITE_OPTIONS);
+			long start = append ? channel.size() : 0L;
+
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			AsynchronousFileChannel writer = channel;
+			writer.write(buffer, start, start, new CompletionHandler<>() {
+				@Override
+				public void completed(Integer amount, Long position) {
+					if (buffer.hasRemaining())
+						writer.write(buffer, position + amount, position + amount, this);
+					else
+						complete(writer, future, null);
+				}
+
+				@Override
+				public void failed(Throwable e, Long position) {
+					fail(writer, future, e);
+				}
+			});
+
+			return future;
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(close(channel, e));
+		}
+	}
+
+	public CompletableFuture<Void> writeAllBytes(File file, byte[] bytes, boolean append) {
+		return writeAllBytes(file.toPath(), bytes, append);
+	}
+
+	public CompletableFuture<Long> copy(Path source, Path dest) {
+		AsynchronousFileChannel input = null;
+
+		try {
+			input = open(source, READ_OPTIONS);
+			AsynchronousFileChannel output = open(dest, WRITE_OPTIONS);
+			return new AsyncCopy(input, output).start();
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(close(input, e));
+		}
+	}
+
+	public CompletableFuture<Long> copy(File source, File dest) {
+		return copy(source.toPath(), dest.toPath());
+	}
+
+	private AsynchronousFileChannel open(Path path, Set<? extends OpenOption> options) throws IOException {
+		return AsynchronousFileChannel.open(path, options, executor);
+	}
+
+	private static <T> void complete(AsynchronousFileChannel channel, CompletableFuture<T> future, T value) {
+		try {
+			channel.close();
+			future.complete(value);
+		} catch (IOException e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	private static void fail(AsynchronousFileChannel channel, CompletableFuture<?> future, Throwable e) {
+		future.completeExceptionally(close(channel, e));
+	}
+
+	private static Throwable close(AsynchronousFileChannel channel, Throwable error) {
+		if (channel == null) return error;
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			if (error == null) return e;
+			error.addSuppressed(e);
+		}
+		return error;
+	}
+
+	private static final class AsyncCopy {
+		private final AsynchronousFileChannel input;
+		private final AsynchronousFileChannel output;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(FileUtil.DEFAULT_BUFFER_SIZE);
+		private final CompletableFuture<Long> future = new CompletableFuture<>();
+		private long position;
+
+		AsyncCopy(AsynchronousFileChannel input, AsynchronousFileChannel output) {
+			this.input = input;
+			this.output = output;
+		}
+
+		CompletableFuture<Long> start() {
+			read();
+			return future;
+		}
+
+		private void read() {
+			buffer.clear();
+			input.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+				@Override
+				public void completed(Integer amount, Void attachment) {
+					if (amount < 0) {
+						finish(null);
+					} else {
+						buffer.flip();
+						write();
+					}
+				}
+
+				@Override
+				public void failed(Throwable e, Void attachment) {
+					finish(e);
+				}
+			});
+		}
+
+		private void write() {
+			output.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+				@Override
+				public void completed(Integer amount, Void attachment) {
+					position += amount;
+					if (buffer.hasRemaining())
+						write();
+					else
+						read();
+				}
+
+				@Override
+				public void failed(Throwable e, Void attachment) {
+					finish(e);
+				}
+			});
+		}
+
+		private void finish(Throwable error) {
+			error = close(output, close(input, error));
+
+			if (error != null)
+				future.completeExceptionally(error);
+			else
+				future.complete(position);
+		}
+	}
+}
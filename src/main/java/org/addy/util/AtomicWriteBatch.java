@@ -0,0 +1,119 @@
+package org.addy.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Buffers atomic replacements and publishes them together. Files are fsynced one by one; the batch only shares the
+ * parent-directory fsyncs.
+ */
+public final class AtomicWriteBatch implements Closeable {
+	private static final int MAX_SYNC_THREADS = 16;
+
+	private final int maxPending;
+	private final Map<Path, Path> pending = new LinkedHashMap<>();
+
+	AtomicWriteBatch(int maxPending) {
+		this.maxPending = Math.max(1, maxPending);
+	}
+
+	public synchronized void writeAllBytes(Path path, byte[] bytes) throws IOException {
+		Path target = path.toAbsolutePath();
+		Path previous = pending.put(target, FileUtil.writeTemp(target, bytes, false));
+		if (previous != null) Files.deleteIfExists(previous);
+
+		if (pending.size() >= maxPending) publish();
+	}
+
+	public void writeAllText(Path path, String text, Charset charset) throws IOException {
+		writeAllBytes(path, text.getBytes(charset));
+	}
+
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Moves every pending file into place. This is not a group commit: each file still gets its own fsync (issued
+	 * concurrently to cut latency), and only the fsync of each parent directory is shared across the batch.
+	 */
+	public synchronized void publish() throws IOException {
+		if (pending.isEmpty()) return;
+
+		try {
+			forceAll(pending.values());
+
+			Set<Path> dirs = new LinkedHashSet<>();
+			for (Map.Entry<Path, Path> entry : pending.entrySet()) {
+				FileUtil.moveAtomically(entry.getValue(), entry.getKey());
+				dirs.add(entry.getKey().getParent());
+			}
+
+			for (Path dir : dirs)
+				FileUtil.forceDirectory(dir);
+		} finally {
+			for (Path temp : pending.values())
+				Files.deleteIfExists(temp);
+			pending.clear();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		publish();
+	}
+
+	private static void forceAll(Collection<Path> temps) throws IOException {
+		int threads = Math.min(temps.size(), MAX_SYNC_THREADS);
+		if (threads <= 1) {
+			for (Path temp : temps)
+				force(temp);
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<>(temps.size());
+			for (Path temp : temps) {
+				futures.add(executor.submit(() -> {
+					force(temp);
+					return null;
+				}));
+			}
+
+			IOException failure = null;
+			for (Future<Void> future : futures) {
+				try {
+					FileUtil.await(future);
+				} catch (IOException e) {
+					if (failure == null) failure = e;
+					else failure.addSuppressed(e);
+				}
+			}
+			if (failure != null) throw failure;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void force(Path temp) throws IOException {
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+}
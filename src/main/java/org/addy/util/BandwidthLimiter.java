@@ -0,0 +1,61 @@
+package org.addy.util;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+public final class BandwidthLimiter {
+	private static final long MIN_SLICE_SIZE = 4 * 1024;
+	private static final long MAX_SLICE_SIZE = 8L * 1024 * 1024;
+
+	private final long bytesPerSecond;
+	private final long burstSize;
+	private double tokens;
+	private long lastRefill;
+
+	public BandwidthLimiter(long bytesPerSecond, long burstSize) {
+		if (bytesPerSecond <= 0)
+			throw new IllegalArgumentException("Bandwidth must be positive: " + bytesPerSecond);
+
+		this.bytesPerSecond = bytesPerSecond;
+		this.burstSize = Math.max(1, burstSize);
+		this.tokens = this.burstSize;
+		this.lastRefill = System.nanoTime();
+	}
+
+	public BandwidthLimiter(long bytesPerSecond) {
+		this(bytesPerSecond, Math.max(MIN_SLICE_SIZE, bytesPerSecond / 10));
+	}
+
+	public long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	public long getBurstSize() {
+		return burstSize;
+	}
+
+	public void acquire(long bytes) throws InterruptedIOException {
+		long waitNanos;
+
+		synchronized (this) {
+			long now = System.nanoTime();
+			tokens = Math.min(burstSize, tokens + (now - lastRefill) * (double) bytesPerSecond / 1e9);
+			lastRefill = now;
+			tokens -= bytes;
+			waitNanos = tokens >= 0 ? 0 : (long) (-tokens * 1e9 / bytesPerSecond);
+		}
+
+		if (waitNanos <= 0) return;
+
+		try {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+		}
+	}
+
+	long getSliceSize() {
+		return Math.max(MIN_SLICE_SIZE, Math.min(MAX_SLICE_SIZE, Math.min(burstSize, bytesPerSecond / 10)));
+	}
+}
@@ -0,0 +1,95 @@
+package org.addy.util;
+
+import java.nio.ByteBuffer;
+
+final class BufferPool {
+	static final int MIN_SIZE = 4 * 1024;
+	static final int MAX_SIZE = 1024 * 1024;
+
+	private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+	private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+
+	private static final ThreadLocal<byte[][]> HEAP = ThreadLocal.withInitial(() -> new byte[CLASS_COUNT][]);
+	private static final ThreadLocal<char[][]> CHARS = ThreadLocal.withInitial(() -> new char[CLASS_COUNT][]);
+	private static final ThreadLocal<ByteBuffer[]> DIRECT = ThreadLocal.withInitial(() -> new ByteBuffer[CLASS_COUNT]);
+
+	private BufferPool() {
+	}
+
+	static byte[] acquire(int minSize) {
+		int sizeClass = sizeClass(minSize);
+		if (sizeClass < 0) return new byte[minSize];
+
+		byte[][] cache = HEAP.get();
+		byte[] buffer = cache[sizeClass];
+		if (buffer == null) return new byte[classSize(sizeClass)];
+
+		cache[sizeClass] = null;
+		return buffer;
+	}
+
+	static void release(byte[] buffer) {
+		int sizeClass = exactSizeClass(buffer.length);
+		if (sizeClass < 0) return;
+
+		byte[][] cache = HEAP.get();
+		if (cache[sizeClass] == null) cache[sizeClass] = buffer;
+	}
+
+	static char[] acquireChars(int minSize) {
+		int sizeClass = sizeClass(minSize);
+		if (sizeClass < 0) return new char[minSize];
+
+		char[][] cache = CHARS.get();
+		char[] buffer = cache[sizeClass];
+		if (buffer == null) return new char[classSize(sizeClass)];
+
+		cache[sizeClass] = null;
+		return buffer;
+	}
+
+	static void release(char[] buffer) {
+		int sizeClass = exactSizeClass(buffer.length);
+		if (sizeClass < 0) return;
+
+		char[][] cache = CHARS.get();
+		if (cache[sizeClass] == null) cache[sizeClass] = buffer;
+	}
+
+	static ByteBuffer acquireDirect(int minSize) {
+		int sizeClass = sizeClass(minSize);
+		if (sizeClass < 0) return ByteBuffer.allocateDirect(minSize);
+
+		ByteBuffer[] cache = DIRECT.get();
+		ByteBuffer buffer = cache[sizeClass];
+		if (buffer == null) return ByteBuffer.allocateDirect(classSize(sizeClass));
+
+		cache[sizeClass] = null;
+		return buffer.clear();
+	}
+
+	static void release(ByteBuffer buffer) {
+		if (!buffer.isDirect()) return;
+
+		int sizeClass = exactSizeClass(buffer.capacity());
+		if (sizeClass < 0) return;
+
+		ByteBuffer[] cache = DIRECT.get();
+		if (cache[sizeClass] == null) cache[sizeClass] = buffer;
+	}
+
+	private static int sizeClass(int size) {
+		if (size > MAX_SIZE) return -1;
+		if (size <= MIN_SIZE) return 0;
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+	}
+
+	private static int exactSizeClass(int size) {
+		int sizeClass = sizeClass(size);
+		return sizeClass >= 0 && classSize(sizeClass) == size ? sizeClass : -1;
+	}
+
+	private static int classSize(int sizeClass) {
+		return MIN_SIZE << sizeClass;
+	}
+}
@@ -0,0 +1,55 @@
+package org.addy.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class CachingContentTypeDetector implements ContentTypeDetector {
+	private final ContentTypeDetector detector;
+	private final Map<Path, CachedType> cache;
+
+	CachingContentTypeDetector(ContentTypeDetector detector, int cacheSize) {
+		this.detector = detector;
+		this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, CachedType> eldest) {
+				return size() > cacheSize;
+			}
+		});
+	}
+
+	@Override
+	public String detect(Path path, BasicFileAttributes attributes) throws IOException {
+		if (attributes == null) {
+			if (!Files.exists(path)) return detector.detect(path, null);
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		}
+
+		Path key = path.toAbsolutePath();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+		CachedType cached = cache.get(key);
+
+		if (cached == null || cached.lastModified != lastModified || cached.size != attributes.size()) {
+			cached = new CachedType(lastModified, attributes.size(), detector.detect(path, attributes));
+			cache.put(key, cached);
+		}
+
+		return cached.contentType;
+	}
+
+	private static final class CachedType {
+		final long lastModified;
+		final long size;
+		final String contentType;
+
+		CachedType(long lastModified, long size, String contentType) {
+			this.lastModified = lastModified;
+			this.size = size;
+			this.contentType = contentType;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package org.addy.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+@FunctionalInterface
+public interface ContentTypeDetector {
+	String detect(Path path, BasicFileAttributes attributes) throws IOException;
+
+	default ContentTypeDetector orElse(ContentTypeDetector other) {
+		return (path, attributes) -> {
+			String contentType = detect(path, attributes);
+			return contentType != null ? contentType : other.detect(path, attributes);
+		};
+	}
+
+	static ContentTypeDetector probing() {
+		return (path, attributes) -> Files.probeContentType(path);
+	}
+
+	static ContentTypeDetector byExtension(ContentTypeDetector detector, int cacheSize) {
+		return new ExtensionContentTypeDetector(detector, cacheSize);
+	}
+
+	static ContentTypeDetector magic() {
+		return MagicContentTypeDetector.INSTANCE;
+	}
+
+	static ContentTypeDetector cached(ContentTypeDetector detector, int cacheSize) {
+		return new CachingContentTypeDetector(detector, cacheSize);
+	}
+}
@@ -0,0 +1,321 @@
+package org.addy.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class DirectoryIndex {
+	private static final int MAGIC = 0x41444958;
+	private static final int VERSION = 1;
+
+	private final Path root;
+	private final Map<String, DirNode> dirs = new LinkedHashMap<>();
+
+	private DirectoryIndex(Path root) {
+		this.root = root.toAbsolutePath();
+	}
+
+	public static DirectoryIndex build(Path root) throws IOException {
+		DirectoryIndex index = new DirectoryIndex(root);
+		index.scan("", index.root);
+		return index;
+	}
+
+	public static DirectoryIndex load(Path indexFile) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+				Files.newInputStream(indexFile), FileUtil.DEFAULT_BUFFER_SIZE))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				throw new IOException("Not a directory index: " + indexFile);
+
+			DirectoryIndex index = new DirectoryIndex(Path.of(input.readUTF()));
+
+			String[] contentTypes = new String[input.readInt()];
+			for (int i = 0; i < contentTypes.length; ++i)
+				contentTypes[i] = input.readUTF();
+
+			int dirCount = input.readInt();
+			for (int i = 0; i < dirCount; ++i) {
+				String relativePath = input.readUTF();
+				DirNode node = new DirNode(input.readLong());
+
+				int subdirCount = input.readInt();
+				for (int j = 0; j < subdirCount; ++j)
+					node.subdirs.add(input.readUTF());
+
+				int fileCount = input.readInt();
+				for (int j = 0; j < fileCount; ++j) {
+					String name = input.readUTF();
+					long size = input.readLong();
+					long lastModified = input.readLong();
+					int type = input.readInt();
+					node.files.add(new FileEntry(name, size, lastModified, type < 0 ? null : contentTypes[type]));
+				}
+
+				index.dirs.put(relativePath, node);
+			}
+
+			return index;
+		}
+	}
+
+	public void save(Path indexFile) throws IOException {
+		Map<String, Integer> contentTypes = new LinkedHashMap<>();
+		for (DirNode node : dirs.values()) {
+			for (FileEntry file : node.files) {
+				if (file.contentType != null)
+					contentTypes.putIfAbsent(file.contentType, contentTypes.size());
+			}
+		}
+
+		Path target = indexFile.toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(temp), FileUtil.DEFAULT_BUFFER_SIZE))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(root.toString());
+
+			output.writeInt(contentTypes.size());
+			for (String contentType : contentTypes.keySet())
+				output.writeUTF(contentType);
+
+			output.writeInt(dirs.size());
+			for (Map.Entry<String, DirNode> entry : dirs.entrySet()) {
+				DirNode node = entry.getValue();
+				output.writeUTF(entry.getKey());
+				output.writeLong(node.lastModified);
+
+				output.writeInt(node.subdirs.size());
+				for (String subdir : node.subdirs)
+					output.writeUTF(subdir);
+
+				output.writeInt(node.files.size());
+				for (FileEntry file : node.files) {
+					output.writeUTF(file.name);
+					output.writeLong(file.size);
+					output.writeLong(file.lastModified);
+					output.writeInt(file.contentType == null ? -1 : contentTypes.get(file.contentType));
+				}
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+
+		FileUtil.moveAtomically(temp, target);
+	}
+
+	public int refresh() throws IOException {
+		return refresh("", root);
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	public long getFileCount() {
+		return dirs.values().stream().mapToLong(node -> node.files.size()).sum();
+	}
+
+	public Stream<Entry> entries() {
+		return dirs.entrySet().stream().flatMap(entry -> {
+			Path dir = resolve(entry.getKey());
+			return entry.getValue().files.stream().map(file -> new Entry(dir.resolve(file.name), file));
+		});
+	}
+
+	public List<Entry> find(Predicate<Entry> predicate) {
+		return entries().filter(predicate).collect(Collectors.toList());
+	}
+
+	public List<Entry> findByExtension(String... extensions) {
+		FileUtil.ExtensionFilter filter = new FileUtil.ExtensionFilter(extensions);
+		return find(entry -> filter.matches(entry.getName()));
+	}
+
+	public List<Entry> findByContentType(String... contentTypes) {
+		FileUtil.ContentTypeFilter filter = new FileUtil.ContentTypeFilter(contentTypes);
+		return find(entry -> filter.matches(entry.getContentType()));
+	}
+
+	private Path resolve(String relativePath) {
+		return relativePath.isEmpty() ? root : root.resolve(relativePath);
+	}
+
+	private void scan(String relativePath, Path dir) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		DirNode node = new DirNode(attrs.lastModifiedTime().toMillis());
+		dirs.put(relativePath, node);
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path child : stream) {
+				BasicFileAttributes childAttrs =
+						Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				String name = child.getFileName().toString();
+
+				if (childAttrs.isDirectory()) {
+					node.subdirs.add(name);
+				} else if (childAttrs.isRegularFile()) {
+					node.files.add(new FileEntry(name, childAttrs.size(), childAttrs.lastModifiedTime().toMillis(),
+							FileUtil.getContentType(child, childAttrs)));
+				}
+			}
+		}
+
+		for (String subdir : node.subdirs)
+			scan(child(relativePath, subdir), dir.resolve(subdir));
+	}
+
+	private int refresh(String relativePath, Path dir) throws IOException {
+		DirNode node = dirs.get(relativePath);
+		BasicFileAttributes attrs;
+
+		try {
+			attrs = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			remove(relativePath);
+			return 1;
+		}
+
+		if (node == null) {
+			scan(relativePath, dir);
+			return 1;
+		}
+
+		if (node.lastModified == attrs.lastModifiedTime().toMillis()) {
+			int rescanned = 0;
+			for (String subdir : new ArrayList<>(node.subdirs))
+				rescanned += refresh(child(relativePath, subdir), dir.resolve(subdir));
+			return rescanned;
+		}
+
+		Map<String, FileEntry> previous = new HashMap<>();
+		for (FileEntry file : node.files)
+			previous.put(file.name, file);
+
+		List<String> oldSubdirs = node.subdirs;
+		DirNode updated = new DirNode(attrs.lastModifiedTime().toMillis());
+		dirs.put(relativePath, updated);
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path child : stream) {
+				BasicFileAttributes childAttrs =
+						Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				String name = child.getFileName().toString();
+
+				if (childAttrs.isDirectory()) {
+					updated.subdirs.add(name);
+				} else if (childAttrs.isRegularFile()) {
+					long lastModified = childAttrs.lastModifiedTime().toMillis();
+					FileEntry old = previous.get(name);
+					String contentType = old != null && old.size == childAttrs.size() && old.lastModified == lastModified
+							? old.contentType : FileUtil.getContentType(child, childAttrs);
+					updated.files.add(new FileEntry(name, childAttrs.size(), lastModified, contentType));
+				}
+			}
+		}
+
+		Set<String> subdirs = new HashSet<>(updated.subdirs);
+		for (String subdir : oldSubdirs) {
+			if (!subdirs.contains(subdir))
+				remove(child(relativePath, subdir));
+		}
+
+		int rescanned = 1;
+		for (String subdir : updated.subdirs)
+			rescanned += refresh(child(relativePath, subdir), dir.resolve(subdir));
+		return rescanned;
+	}
+
+	private void remove(String relativePath) {
+		DirNode node = dirs.remove(relativePath);
+		if (node == null) return;
+
+		for (String subdir : node.subdirs)
+			remove(child(relativePath, subdir));
+	}
+
+	private static String child(String relativePath, String name) {
+		return relativePath.isEmpty() ? name : relativePath + "/" + name;
+	}
+
+	///////////////// INNER CLASSES AND INTERFACES ///////////////////
+
+	public static final class Entry {
+		private final Path path;
+		private final FileEntry file;
+
+		Entry(Path path, FileEntry file) {
+			this.path = path;
+			this.file = file;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public String getName() {
+			return file.name;
+		}
+
+		public long getSize() {
+			return file.size;
+		}
+
+		public long getLastModified() {
+			return file.lastModified;
+		}
+
+		public String getContentType() {
+			return file.contentType;
+		}
+
+		@Override
+		public String toString() {
+			return "Entry {path = " + path + ", size = " + file.size + ", contentType = " + file.contentType + "}";
+		}
+	}
+
+	private static final class DirNode {
+		final long lastModified;
+		final List<String> subdirs = new ArrayList<>();
+		final List<FileEntry> files = new ArrayList<>();
+
+		DirNode(long lastModified) {
+			this.lastModified = lastModified;
+		}
+	}
+
+	private static final class FileEntry {
+		final String name;
+		final long size;
+		final long lastModified;
+		final String contentType;
+
+		FileEntry(String name, long size, long lastModified, String contentType) {
+			this.name = name;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.contentType = contentType;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.addy.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+final class ExtensionContentTypeDetector implements ContentTypeDetector {
+	private static final String UNKNOWN = "";
+
+	private final ContentTypeDetector detector;
+	private final Map<String, String> cache;
+
+	ExtensionContentTypeDetector(ContentTypeDetector detector, int cacheSize) {
+		this.detector = detector;
+		this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > cacheSize;
+			}
+		});
+	}
+
+	@Override
+	public String detect(Path path, BasicFileAttributes attributes) throws IOException {
+		Path fileName = path.getFileName();
+		if (fileName == null) return null;
+
+		String name = fileName.toString();
+		int lastDot = name.lastIndexOf('.');
+		if (lastDot < 0) return null;
+
+		String extension = name.substring(lastDot).toLowerCase(Locale.ROOT);
+		String contentType = cache.get(extension);
+
+		if (contentType == null) {
+			contentType = detector.detect(path, attributes);
+			if (contentType == null) contentType = UNKNOWN;
+			cache.put(extension, contentType);
+		}
+
+		return contentType.equals(UNKNOWN) ? null : contentType;
+	}
+}
@@ -0,0 +1,172 @@
+package org.addy.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+public final class FileFollower implements Closeable {
+	private final Path path;
+	private final Charset charset;
+	private final FileUtil.LineConsumer consumer;
+	private final long pollMillis;
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private final Thread thread;
+	private volatile boolean closed;
+	private FileChannel channel;
+	private Object identity;
+	private long position;
+
+	FileFollower(Path path, Charset charset, FileUtil.LineConsumer consumer, int initialLines, long pollMillis)
+			throws IOException {
+		this.path = path;
+		this.charset = charset;
+		this.consumer = consumer;
+		this.pollMillis = Math.max(1, pollMillis);
+
+		open();
+		position = FileUtil.tailStart(channel, channel.size(), initialLines);
+
+		thread = new Thread(this::run, "FileFollower-" + path.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		thread.interrupt();
+	}
+
+	private void run() {
+		byte[] buffer = BufferPool.acquire(FileUtil.DEFAULT_BUFFER_SIZE);
+
+		try {
+			while (!closed) {
+				try {
+					if (channel == null) {
+						Object previous = identity;
+						open();
+						if (!Objects.equals(previous, identity)) {
+							position = 0;
+							pending.reset();
+						}
+					}
+
+					if (!readAppended(buffer) && switchIfRotated(buffer))
+						continue;
+				} catch (NoSuchFileException e) {
+					closeChannel();
+				} catch (IOException e) {
+					if (closed) break;
+					closeChannel();
+				}
+
+				Thread.sleep(pollMillis);
+			}
+		} catch (InterruptedException e) {
+			// Closed or interrupted
+		} finally {
+			closed = true;
+			closeChannel();
+			BufferPool.release(buffer);
+		}
+	}
+
+	private boolean readAppended(byte[] buffer) throws IOException {
+		long size = channel.size();
+		if (size < position) {
+			position = 0;
+			pending.reset();
+		}
+
+		boolean progressed = false;
+		ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+
+		while (!closed && position < size) {
+			wrapped.clear();
+			int amount = channel.read(wrapped, position);
+			if (amount <= 0) break;
+
+			position += amount;
+			progressed = true;
+
+			int lineStart = 0;
+			for (int i = 0; i < amount; ++i) {
+				if (buffer[i] == '\n') {
+					pending.write(buffer, lineStart, i - lineStart);
+					emit();
+					lineStart = i + 1;
+				}
+			}
+			pending.write(buffer, lineStart, amount - lineStart);
+		}
+
+		return progressed;
+	}
+
+	private boolean switchIfRotated(byte[] buffer) throws IOException {
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+
+		if (Objects.equals(identity, identityOf(attrs)))
+			return false;
+
+		readAppended(buffer);
+		if (pending.size() > 0) emit();
+		closeChannel();
+		return true;
+	}
+
+	private void emit() {
+		String line = pending.toString(charset);
+		pending.reset();
+		try {
+			consumer.consume(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+		} catch (RuntimeException e) {
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		identity = identityOf(Files.readAttributes(path, BasicFileAttributes.class));
+	}
+
+	private void closeChannel() {
+		if (channel == null) return;
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Nothing was written through this read-only channel, so there is nothing to lose
+		}
+		channel = null;
+	}
+
+	private static Object identityOf(BasicFileAttributes attrs) {
+		Object key = attrs.fileKey();
+		return key != null ? key : attrs.creationTime();
+	}
+}
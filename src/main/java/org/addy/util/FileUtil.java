@@ -1,7 +1,7 @@
 package org.addy.util;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
@@ -10,15 +10,93 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 
 public final class FileUtil {
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final long MAPPED_WINDOW_SIZE = 256L * 1024 * 1024;
+	private static final long LINE_CHUNK_SIZE = 8L * 1024 * 1024;
+	private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+	private static final int HASH_PREFIX_SIZE = 4096;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final long ZIP_BUFFERED_ENTRY_SIZE = 4L * 1024 * 1024;
+	private static final long ZIP_MAX_BUFFERED_BYTES = 32L * 1024 * 1024;
+	private static final int TAIL_BLOCK_SIZE = 8 * 1024;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private static volatile ContentTypeDetector contentTypeDetector =
+			ContentTypeDetector.byExtension(ContentTypeDetector.probing(), 1024)
+					.orElse(ContentTypeDetector.cached(
+							ContentTypeDetector.magic().orElse(FileUtil::getDefaultContentType), 100_000));
+
 	private FileUtil() {
 	}
 
@@ -67,22 +145,42 @@ public final class FileUtil {
 		return null;
 	}
 	
+	public static String getContentType(Path path, BasicFileAttributes attributes) throws IOException {
+		if (attributes == null && Files.exists(path))
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+		if (attributes != null && attributes.isDirectory())
+			return null;
+
+		return contentTypeDetector.detect(path, attributes);
+	}
+
 	public static String getContentType(File file) throws IOException {
-        String contentType = Files.probeContentType(file.toPath());
-        if (contentType == null && file.isFile()) {
-            return switch (getExtension(file.getPath())) {
-                case ".json" -> "application/json";
-                case ".jsonp" -> "application/javascript";
-                default -> "application/octet-stream";
-            };
-        }
-        return contentType;
-    }
+		return getContentType(file.toPath(), null);
+	}
 
 	public static String getContentType(String fileName) throws IOException {
 		return getContentType(new File(fileName));
 	}
 
+	public static ContentTypeDetector getContentTypeDetector() {
+		return contentTypeDetector;
+	}
+
+	public static void setContentTypeDetector(ContentTypeDetector detector) {
+		contentTypeDetector = Objects.requireNonNull(detector);
+	}
+
+	private static String getDefaultContentType(Path path, BasicFileAttributes attributes) {
+		if (attributes == null || !attributes.isRegularFile()) return null;
+
+		return switch (getExtension(path.toString())) {
+			case ".json" -> "application/json";
+			case ".jsonp" -> "application/javascript";
+			default -> "application/octet-stream";
+		};
+	}
+
 	public static String combine(String root, String firstChild, String... moreChildren) {
 		File combined = new File(root, firstChild);
 		for (String child : moreChildren) {
@@ -104,23 +202,201 @@ public final class FileUtil {
 	}
 
 	public static boolean move(String source, String dest) {
-		return (new File(source)).renameTo(new File(dest));
+		if ((new File(source)).renameTo(new File(dest)))
+			return true;
+
+		try {
+			return move(Path.of(source), Path.of(dest), new CopyOptions());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public static boolean move(Path source, Path dest, ProgressListener listener) throws IOException {
+		return move(source, dest, new CopyOptions().listener(listener));
+	}
+
+	public static boolean move(Path source, Path dest, CopyOptions options) throws IOException {
+		try {
+			Files.move(source, dest, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (AtomicMoveNotSupportedException e) {
+			BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			return attrs.isDirectory() ? moveTree(source, dest, options) : moveFile(source, dest, attrs, options);
+		}
+	}
+
+	private static boolean moveFile(Path source, Path dest, BasicFileAttributes attrs, CopyOptions options)
+			throws IOException {
+		Progress progress = new Progress(options.getListener(), attrs.size());
+		if (copyFile(source.toFile(), dest.toFile(), options.getLimiter(), progress) < 0)
+			return false;
+
+		Files.setLastModifiedTime(dest, attrs.lastModifiedTime());
+		Files.delete(source);
+		return true;
 	}
 
-	public static int copyStream(InputStream input, OutputStream output) throws IOException {
-		byte[] buffer = new byte[1024];
-		int total = 0;
+	private static boolean moveTree(Path source, Path dest, CopyOptions options) throws IOException {
+		if (Files.exists(dest, LinkOption.NOFOLLOW_LINKS))
+			throw new FileAlreadyExistsException(dest.toString());
+
+		Progress progress = new Progress(options.getListener(), options.getListener() == null ? 0 : totalSize(source));
+		boolean[] cancelled = {false};
+
+		Files.walkFileTree(source, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(dest.resolve(source.relativize(dir).toString()));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Path target = dest.resolve(source.relativize(file).toString());
+				long copied = copyFile(file.toFile(), target.toFile(), options.getLimiter(), progress);
+
+				if (copied < 0) {
+					cancelled[0] = true;
+					return FileVisitResult.TERMINATE;
+				}
+
+				Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+				progress.advance(copied);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		TreeResult cleanup = deleteTree(cancelled[0] ? dest.toFile() : source.toFile());
+		if (!cleanup.isSuccessful())
+			throw cleanup.getFailures().values().iterator().next();
+
+		return !cancelled[0];
+	}
+
+	private static long totalSize(Path root) throws IOException {
+		try (Stream<Path> paths = stream(root, file -> true)) {
+			return paths.mapToLong(path -> path.toFile().length()).sum();
+		}
+	}
+
+	public static long copyStream(InputStream input, OutputStream output, int bufferSize) throws IOException {
+		byte[] buffer = BufferPool.acquire(bufferSize);
+		long total = 0;
 		int amount;
-		
-		while ((amount = input.read(buffer)) > 0) {
-			output.write(buffer, 0, amount);
-			total += amount;
+
+		try {
+			while ((amount = input.read(buffer, 0, bufferSize)) > 0) {
+				output.write(buffer, 0, amount);
+				total += amount;
+			}
+		} finally {
+			BufferPool.release(buffer);
+		}
+
+		return total;
+	}
+
+	public static long copyStream(InputStream input, OutputStream output) throws IOException {
+		return copyStream(input, output, DEFAULT_BUFFER_SIZE);
+	}
+
+	public static long copyStream(InputStream input, OutputStream output, CopyOptions options) throws IOException {
+		BandwidthLimiter limiter = options.getLimiter();
+		Progress progress = new Progress(options.getListener(), options.getExpectedSize());
+		int chunkSize = limiter == null ? options.getBufferSize()
+				: (int) Math.min(options.getBufferSize(), limiter.getSliceSize());
+		byte[] buffer = BufferPool.acquire(chunkSize);
+		long total = 0;
+		int amount;
+
+		try {
+			while ((amount = input.read(buffer, 0, chunkSize)) > 0) {
+				if (limiter != null) limiter.acquire(amount);
+				output.write(buffer, 0, amount);
+				total += amount;
+
+				if (!progress.update(total))
+					return -1;
+			}
+		} finally {
+			BufferPool.release(buffer);
 		}
 
 		return total;
 	}
 
+	public static long copyFile(File sourceFile, File destFile) throws IOException {
+		return copyFile(sourceFile, destFile, new CopyOptions());
+	}
+
+	public static long copyFile(File sourceFile, File destFile, ProgressListener listener) throws IOException {
+		return copyFile(sourceFile, destFile, new CopyOptions().listener(listener));
+	}
+
+	public static long copyFile(File sourceFile, File destFile, CopyOptions options) throws IOException {
+		return copyFile(sourceFile, destFile, options.getLimiter(), new Progress(options.getListener(), sourceFile.length()));
+	}
+
+	private static long copyFile(File sourceFile, File destFile, BandwidthLimiter limiter, Progress progress)
+			throws IOException {
+		long copied;
+
+		try (FileChannel input = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+			 FileChannel output = FileChannel.open(destFile.toPath(), StandardOpenOption.WRITE,
+					 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			copied = transfer(input, output, limiter, progress);
+		} catch (IOException e) {
+			if (e instanceof InterruptedIOException) throw e;
+
+			Files.copy(sourceFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			copied = destFile.length();
+			progress.update(copied);
+		}
+
+		if (copied < 0) Files.deleteIfExists(destFile.toPath());
+		return copied;
+	}
+
+	private static long transfer(FileChannel input, FileChannel output, BandwidthLimiter limiter, Progress progress)
+			throws IOException {
+		long size = input.size();
+		long position = 0;
+		long sliceSize = limiter != null ? limiter.getSliceSize() : progress.isTracking() ? TRANSFER_CHUNK_SIZE : size;
+
+		while (position < size) {
+			long count = Math.min(size - position, sliceSize);
+			if (limiter != null) limiter.acquire(count);
+
+			long amount = input.transferTo(position, count, output);
+			if (amount <= 0) {
+				input.position(position);
+				amount = output.transferFrom(input, position, count);
+				if (amount <= 0) break;
+			}
+			position += amount;
+
+			if (!progress.update(position))
+				return -1;
+		}
+
+		if (position < size)
+			throw new IOException("Channel transfer stopped at " + position + " of " + size + " bytes");
+
+		return position;
+	}
+
 	public static boolean copy(File sourceFile, File destFile) throws IOException {
+		return copy(sourceFile, destFile, null, new Progress(null, 0));
+	}
+
+	public static boolean copy(File sourceFile, File destFile, CopyOptions options) throws IOException {
+		long total = options.getListener() == null || !sourceFile.exists() ? 0 : totalSize(sourceFile.toPath());
+		return copy(sourceFile, destFile, options.getLimiter(), new Progress(options.getListener(), total));
+	}
+
+	private static boolean copy(File sourceFile, File destFile, BandwidthLimiter limiter, Progress progress)
+			throws IOException {
 		if (!sourceFile.exists()) return false;
 
 		if (destFile.isDirectory())
@@ -131,7 +407,7 @@ public final class FileUtil {
 				return false;
 
 			for (File childFile : sourceFile.listFiles()) {
-				if (!copy(childFile, new File(destFile, childFile.getName())))
+				if (!copy(childFile, new File(destFile, childFile.getName()), limiter, progress))
 					return false;
 			}
 
@@ -142,12 +418,10 @@ public final class FileUtil {
 		if (!(destDir.isDirectory() || destDir.mkdirs()))
 			return false;
 		
-		try (InputStream input = new FileInputStream(sourceFile)) {
-			try (OutputStream output = new FileOutputStream(destFile)) {
-				copyStream(input, output);
-			}
-		}
+		long copied = copyFile(sourceFile, destFile, limiter, progress);
+		if (copied < 0) return false;
 
+		progress.advance(copied);
 		return true;
 	}
 
@@ -169,6 +443,156 @@ public final class FileUtil {
 	public static boolean delete(String path) {
 		return delete(new File(path));
 	}
+
+	public static TreeResult copyTree(File sourceDir, File destDir, int parallelism) {
+		if (destDir.isDirectory())
+			destDir = new File(destDir, sourceDir.getName());
+
+		TreeResult result = new TreeResult();
+		runTreeTask(new CopyTreeTask(sourceDir, destDir, result), parallelism);
+		return result.complete();
+	}
+
+	public static TreeResult copyTree(File sourceDir, File destDir) {
+		return copyTree(sourceDir, destDir, Runtime.getRuntime().availableProcessors());
+	}
+
+	public static TreeResult copyTree(String source, String dest) {
+		return copyTree(new File(source), new File(dest));
+	}
+
+	public static TreeResult deleteTree(File root, int parallelism) {
+		TreeResult result = new TreeResult();
+		runTreeTask(new DeleteTreeTask(root, result), parallelism);
+		return result.complete();
+	}
+
+	public static TreeResult deleteTree(File root) {
+		return deleteTree(root, Runtime.getRuntime().availableProcessors());
+	}
+
+	public static TreeResult deleteTree(String path) {
+		return deleteTree(new File(path));
+	}
+
+	private static void runTreeTask(RecursiveAction task, int parallelism) {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+		try {
+			pool.invoke(task);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public static SyncResult sync(Path sourceDir, Path destDir, SyncOptions options) throws IOException {
+		SyncResult result = new SyncResult(options.isDryRun());
+
+		Files.walkFileTree(sourceDir, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				Path target = destDir.resolve(sourceDir.relativize(dir).toString());
+				try {
+					if (!options.isDryRun()) Files.createDirectories(target);
+				} catch (IOException e) {
+					result.addFailure(dir, e);
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				Path target = destDir.resolve(sourceDir.relativize(file).toString());
+				try {
+					if (isOutOfSync(file, attrs, target, options)) {
+						if (!options.isDryRun()) {
+							copyFile(file.toFile(), target.toFile());
+							Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+						}
+						result.addCopied(target, attrs.size());
+					} else {
+						result.addUnchanged();
+					}
+				} catch (IOException e) {
+					result.addFailure(file, e);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				result.addFailure(file, e);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+				if (e != null) result.addFailure(dir, e);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		if (options.isDeleteExtraneous() && Files.isDirectory(destDir))
+			deleteExtraneous(sourceDir, destDir, result);
+
+		return result.complete();
+	}
+
+	public static SyncResult sync(String source, String dest, SyncOptions options) throws IOException {
+		return sync(Path.of(source), Path.of(dest), options);
+	}
+
+	private static boolean isOutOfSync(Path source, BasicFileAttributes attrs, Path target, SyncOptions options)
+			throws IOException {
+		BasicFileAttributes targetAttrs;
+		try {
+			targetAttrs = Files.readAttributes(target, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return true;
+		}
+
+		if (!targetAttrs.isRegularFile() || targetAttrs.size() != attrs.size())
+			return true;
+
+		if (options.isCompareContent())
+			return !hash(source, options.getAlgorithm()).equals(hash(target, options.getAlgorithm()));
+
+		return targetAttrs.lastModifiedTime().toMillis() != attrs.lastModifiedTime().toMillis();
+	}
+
+	private static void deleteExtraneous(Path sourceDir, Path destDir, SyncResult result) throws IOException {
+		Files.walkFileTree(destDir, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				if (dir.equals(destDir) || Files.isDirectory(sourceDir.resolve(destDir.relativize(dir).toString())))
+					return FileVisitResult.CONTINUE;
+
+				delete(dir);
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (!Files.isRegularFile(sourceDir.resolve(destDir.relativize(file).toString())))
+					delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				result.addFailure(file, e);
+				return FileVisitResult.CONTINUE;
+			}
+
+			private void delete(Path path) {
+				if (!result.isDryRun()) {
+					TreeResult deleted = deleteTree(path.toFile(), 1);
+					deleted.getFailures().forEach((file, e) -> result.addFailure(file.toPath(), e));
+				}
+				result.addDeleted(path);
+			}
+		});
+	}
 	
 	public static void walkTree(File rootNode, FileFilter filter, TreeWalker treeWalker) {
 		if (rootNode.isDirectory()) {
@@ -188,6 +612,353 @@ public final class FileUtil {
 		walkTree(new File(rootPath), filter, treeWalker);
 	}
 
+	public static void walkTree(Path root, FileFilter filter, TreeWalker treeWalker) throws IOException {
+		PathFilter pathFilter = PathFilter.of(filter);
+
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				if (!dir.equals(root) && !pathFilter.accept(dir, attrs))
+					return FileVisitResult.SKIP_SUBTREE;
+
+				return treeWalker.beforeEnteringDirectory(dir, attrs) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (file.equals(root) || pathFilter.accept(file, attrs))
+					treeWalker.onLeaf(file, attrs);
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				treeWalker.onFailure(file, e);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+				if (e != null) treeWalker.onFailure(dir, e);
+				treeWalker.afterExitingDirectory(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Walks the tree with subdirectories visited concurrently on up to {@code parallelism} threads.
+	 * The walker is therefore called from several threads at once and must be thread-safe.
+	 */
+	public static void walkTree(Path root, FileFilter filter, TreeWalker treeWalker, int parallelism) throws IOException {
+		if (parallelism <= 1) {
+			walkTree(root, filter, treeWalker);
+			return;
+		}
+
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (IOException e) {
+			treeWalker.onFailure(root, e);
+			return;
+		}
+
+		if (!attrs.isDirectory()) {
+			treeWalker.onLeaf(root, attrs);
+			return;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new WalkTreeTask(root, attrs, PathFilter.of(filter), treeWalker));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public static Stream<Path> stream(Path root, FileFilter filter) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		if (!attrs.isDirectory()) return Stream.of(root);
+
+		Set<TreeSpliterator> spliterators = ConcurrentHashMap.newKeySet();
+		TreeSpliterator spliterator = new TreeSpliterator(root, PathFilter.of(filter), spliterators);
+		return StreamSupport.stream(spliterator, false).onClose(() -> spliterators.forEach(TreeSpliterator::close));
+	}
+
+	public static Stream<Path> stream(File root, FileFilter filter) throws IOException {
+		return stream(root.toPath(), filter);
+	}
+
+	public static Stream<Path> stream(String rootPath, FileFilter filter) throws IOException {
+		return stream(Path.of(rootPath), filter);
+	}
+
+	public static String hash(Path path, String algorithm) throws IOException {
+		MessageDigest digest = newDigest(algorithm);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			for (long position = 0; position < size; position += MAPPED_WINDOW_SIZE) {
+				long length = Math.min(MAPPED_WINDOW_SIZE, size - position);
+				digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+			}
+		}
+
+		return toHex(digest.digest());
+	}
+
+	public static String hash(File file, String algorithm) throws IOException {
+		return hash(file.toPath(), algorithm);
+	}
+
+	public static List<List<Path>> findDuplicates(Path root, FileFilter filter, String algorithm, int parallelism)
+			throws IOException {
+		Map<Long, List<Path>> bySize = new HashMap<>();
+		walkTree(root, filter, new TreeWalker() {
+			@Override
+			public void onLeaf(File node) {
+			}
+
+			@Override
+			public void onLeaf(Path node, BasicFileAttributes attributes) {
+				if (attributes.isRegularFile() && attributes.size() > 0)
+					bySize.computeIfAbsent(attributes.size(), size -> new ArrayList<>()).add(node);
+			}
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+		try {
+			List<List<Path>> candidates = new ArrayList<>();
+			for (List<Path> group : bySize.values()) {
+				if (group.size() > 1) candidates.addAll(groupByHash(group, path -> hashPrefix(path, algorithm), executor));
+			}
+
+			List<List<Path>> duplicates = new ArrayList<>();
+			for (List<Path> group : candidates) {
+				if (Files.size(group.get(0)) <= HASH_PREFIX_SIZE)
+					duplicates.add(group);
+				else
+					duplicates.addAll(groupByHash(group, path -> hash(path, algorithm), executor));
+			}
+
+			return duplicates;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public static List<List<Path>> findDuplicates(Path root, FileFilter filter) throws IOException {
+		return findDuplicates(root, filter, "SHA-256", Runtime.getRuntime().availableProcessors());
+	}
+
+	public static List<List<Path>> findDuplicates(String rootPath, FileFilter filter) throws IOException {
+		return findDuplicates(Path.of(rootPath), filter);
+	}
+
+	private static String hashPrefix(Path path, String algorithm) throws IOException {
+		MessageDigest digest = newDigest(algorithm);
+
+		ByteBuffer buffer = BufferPool.acquireDirect(HASH_PREFIX_SIZE);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer.limit(HASH_PREFIX_SIZE);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) break;
+			}
+			buffer.flip();
+			digest.update(buffer);
+		} finally {
+			BufferPool.release(buffer);
+		}
+
+		return toHex(digest.digest());
+	}
+
+	private static List<List<Path>> groupByHash(List<Path> paths, PathHasher hasher, ExecutorService executor)
+			throws IOException {
+		List<Future<String>> futures = new ArrayList<>(paths.size());
+		for (Path path : paths)
+			futures.add(executor.submit(() -> hasher.hash(path)));
+
+		Map<String, List<Path>> byHash = new HashMap<>();
+		for (int i = 0; i < paths.size(); ++i)
+			byHash.computeIfAbsent(await(futures.get(i)), hash -> new ArrayList<>()).add(paths.get(i));
+
+		List<List<Path>> groups = new ArrayList<>();
+		for (List<Path> group : byHash.values()) {
+			if (group.size() > 1) groups.add(group);
+		}
+
+		return groups;
+	}
+
+	private static MessageDigest newDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Unsupported hash algorithm: " + algorithm, e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; ++i) {
+			chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	public static long zip(Path root, FileFilter filter, OutputStream output, int parallelism) throws IOException {
+		ZipWriter writer = new ZipWriter(output, Deflater.DEFAULT_COMPRESSION);
+		ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+		Deque<Future<ZipAction>> pending = new ArrayDeque<>();
+		Deque<Long> pendingSizes = new ArrayDeque<>();
+		int maxPending = 2 * Math.max(1, parallelism);
+		long[] count = new long[1];
+		long[] bufferedBytes = new long[1];
+
+		try {
+			walkTree(root, filter, new TreeWalker() {
+				@Override
+				public void onLeaf(File node) {
+				}
+
+				@Override
+				public boolean beforeEnteringDirectory(Path node, BasicFileAttributes attributes) {
+					if (!node.equals(root)) {
+						String name = zipEntryName(root, node);
+						long lastModified = attributes.lastModifiedTime().toMillis();
+						enqueue(CompletableFuture.completedFuture(zip -> zip.writeDirectory(name, lastModified)), 0);
+					}
+					return true;
+				}
+
+				@Override
+				public void onLeaf(Path node, BasicFileAttributes attributes) {
+					if (!attributes.isRegularFile()) return;
+
+					String name = node.equals(root) ? node.getFileName().toString() : zipEntryName(root, node);
+					long lastModified = attributes.lastModifiedTime().toMillis();
+					long size = attributes.size();
+
+					if (executor == null || size > ZIP_BUFFERED_ENTRY_SIZE) {
+						enqueue(CompletableFuture.completedFuture(zip -> zip.writeStreamed(name, lastModified, node)), 0);
+					} else {
+						drain(maxPending - 1, ZIP_MAX_BUFFERED_BYTES - size);
+						enqueue(executor.submit(() -> {
+							ZipWriter.Compressed compressed =
+									ZipWriter.compress(name, lastModified, node, Deflater.DEFAULT_COMPRESSION);
+							return zip -> zip.writeDeflated(compressed);
+						}), size);
+					}
+					++count[0];
+				}
+
+				@Override
+				public void onFailure(Path node, IOException e) {
+					throw new UncheckedIOException(e);
+				}
+
+				private void enqueue(Future<ZipAction> action, long size) {
+					pending.add(action);
+					pendingSizes.add(size);
+					bufferedBytes[0] += size;
+					drain(maxPending, ZIP_MAX_BUFFERED_BYTES);
+				}
+
+				private void drain(int maxCount, long maxBytes) {
+					try {
+						while (!pending.isEmpty() && (pending.size() > maxCount || bufferedBytes[0] > maxBytes)) {
+							await(pending.poll()).write(writer);
+							bufferedBytes[0] -= pendingSizes.poll();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+
+			while (!pending.isEmpty())
+				await(pending.poll()).write(writer);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			if (executor != null) executor.shutdownNow();
+		}
+
+		writer.finish();
+		return count[0];
+	}
+
+	public static long zip(Path root, FileFilter filter, OutputStream output) throws IOException {
+		return zip(root, filter, output, Runtime.getRuntime().availableProcessors());
+	}
+
+	public static long zip(String rootPath, FileFilter filter, String zipPath) throws IOException {
+		try (OutputStream output = Files.newOutputStream(Path.of(zipPath))) {
+			return zip(Path.of(rootPath), filter, output);
+		}
+	}
+
+	public static long unzip(InputStream input, Path destDir) throws IOException {
+		Path target = destDir.toAbsolutePath().normalize();
+		Files.createDirectories(target);
+		long count = 0;
+
+		ZipInputStream zipInput = new ZipInputStream(input, StandardCharsets.UTF_8);
+		for (ZipEntry entry = zipInput.getNextEntry(); entry != null; entry = zipInput.getNextEntry()) {
+			Path path = target.resolve(entry.getName()).normalize();
+			if (!path.startsWith(target) || path.equals(target))
+				throw new ZipException("Entry " + entry.getName() + " is outside of " + destDir);
+
+			if (entry.isDirectory()) {
+				Files.createDirectories(path);
+			} else {
+				Files.createDirectories(path.getParent());
+				try (OutputStream output = Files.newOutputStream(path)) {
+					copyStream(zipInput, output);
+				}
+				++count;
+			}
+
+			if (entry.getLastModifiedTime() != null)
+				Files.setLastModifiedTime(path, entry.getLastModifiedTime());
+			zipInput.closeEntry();
+		}
+
+		return count;
+	}
+
+	public static long unzip(String zipPath, String destDir) throws IOException {
+		try (InputStream input = Files.newInputStream(Path.of(zipPath))) {
+			return unzip(input, Path.of(destDir));
+		}
+	}
+
+	private static String zipEntryName(Path root, Path node) {
+		String name = root.relativize(node).toString();
+		return File.separatorChar == '/' ? name : name.replace(File.separatorChar, '/');
+	}
+
+	public static FileWatcher watch(Path root, FileFilter filter, FileWatcher.ChangeListener listener,
+									long debounceMillis, Executor executor) throws IOException {
+		return new FileWatcher(root, filter, listener, debounceMillis, executor);
+	}
+
+	public static FileWatcher watch(Path root, FileFilter filter, FileWatcher.ChangeListener listener) throws IOException {
+		return watch(root, filter, listener, 200, Runnable::run);
+	}
+
+	public static AsyncFileUtil async() {
+		return AsyncFileUtil.DEFAULT;
+	}
+
+	public static AsyncFileUtil async(ExecutorService executor) {
+		return new AsyncFileUtil(executor);
+	}
+
 	public static InputStream open(String path) throws FileNotFoundException {
 		return new FileInputStream(path);
 	}
@@ -213,36 +984,84 @@ public final class FileUtil {
 	}
 	
 	public static byte[] readAllBytes(InputStream input) throws IOException {
-		try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-        	copyStream(input, output);
-        	return output.toByteArray();
-        }
+		byte[] buffer = BufferPool.acquire(DEFAULT_BUFFER_SIZE);
+		List<byte[]> chunks = null;
+		int length = 0;
+		long total = 0;
+
+		try {
+			int amount;
+			while ((amount = input.read(buffer, length, buffer.length - length)) > 0) {
+				length += amount;
+				total += amount;
+				if (length == buffer.length) {
+					if (chunks == null) chunks = new ArrayList<>();
+					if (total > MAX_ARRAY_SIZE) throw new IOException("Stream too large to read into an array");
+					chunks.add(buffer);
+					buffer = BufferPool.acquire(DEFAULT_BUFFER_SIZE);
+					length = 0;
+				}
+			}
+
+			byte[] bytes = new byte[(int) total];
+			int position = 0;
+			if (chunks != null) {
+				for (byte[] chunk : chunks) {
+					System.arraycopy(chunk, 0, bytes, position, chunk.length);
+					position += chunk.length;
+				}
+			}
+			System.arraycopy(buffer, 0, bytes, position, length);
+			return bytes;
+		} finally {
+			BufferPool.release(buffer);
+			if (chunks != null) chunks.forEach(BufferPool::release);
+		}
     }
 	
 	public static byte[] readAllBytes(File file) throws IOException {
 		try (FileInputStream input = new FileInputStream(file)) {
-			return readAllBytes(input);
+			return readAllBytes(input, file.length());
 		}
     }
 	
 	public static byte[] readAllBytes(String path) throws IOException {
-		try (FileInputStream input = new FileInputStream(path)) {
-			return readAllBytes(input);
-		}
+		return readAllBytes(new File(path));
     }
+
+	private static byte[] readAllBytes(InputStream input, long expectedSize) throws IOException {
+		if (expectedSize > MAX_ARRAY_SIZE) throw new IOException("File too large to read into an array");
+
+		byte[] bytes = new byte[(int) expectedSize];
+		int length = input.readNBytes(bytes, 0, bytes.length);
+		if (length < bytes.length) return Arrays.copyOf(bytes, length);
+
+		int next = input.read();
+		if (next < 0) return bytes;
+
+		byte[] rest = readAllBytes(input);
+		if ((long) bytes.length + 1 + rest.length > MAX_ARRAY_SIZE)
+			throw new IOException("File too large to read into an array");
+
+		byte[] result = Arrays.copyOf(bytes, bytes.length + 1 + rest.length);
+		result[bytes.length] = (byte) next;
+		System.arraycopy(rest, 0, result, bytes.length + 1, rest.length);
+		return result;
+	}
 	
 	public static String readAllText(InputStream input) throws IOException {
 		StringBuilder sb = new StringBuilder();
 		String newLine = String.format("%n");
-		String line;
-		
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
-        	while ((line = reader.readLine()) != null) {
-        		if (sb.length() != 0) sb.append(newLine);
-        		sb.append(line);
-        	}
-        }
-		
+		boolean[] first = {true};
+
+		try (input) {
+			readLines(input, line -> {
+				if (!first[0]) sb.append(newLine);
+				sb.append(line);
+				first[0] = false;
+			});
+		}
+
 		return sb.toString();
     }
 	
@@ -258,15 +1077,25 @@ public final class FileUtil {
 		}
     }
 	
+	public static String readAllText(InputStream input, Charset charset) throws IOException {
+		return new String(readAllBytes(input), charset);
+	}
+	
+	public static String readAllText(File file, Charset charset) throws IOException {
+		return new String(readAllBytes(file), charset);
+	}
+	
+	public static String readAllText(String path, Charset charset) throws IOException {
+		return readAllText(new File(path), charset);
+	}
+	
 	public static String[] readAllLines(InputStream input) throws IOException {
 		List<String> lines = new ArrayList<>();
-		String line;
-		
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
-        	while ((line = reader.readLine()) != null)
-        		lines.add(line);
-        }
-		
+
+		try (input) {
+			readLines(input, lines::add);
+		}
+
 		return lines.toArray(String[]::new);
     }
 	
@@ -283,11 +1112,9 @@ public final class FileUtil {
     }
 	
 	public static void eachLine(InputStream input, LineConsumer consumer) throws IOException {
-		String line;
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
-        	while ((line = reader.readLine()) != null)
-        		consumer.consume(line);
-        }
+		try (input) {
+			readLines(input, consumer);
+		}
     }
 	
 	public static void eachLine(File file, LineConsumer consumer) throws IOException {
@@ -301,6 +1128,324 @@ public final class FileUtil {
 			eachLine(input, consumer);
 		}
     }
+
+	public static void eachLine(Path path, Charset charset, MappedLineConsumer consumer) throws IOException {
+		checkLineCharset(charset);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			scanRange(channel, 0, channel.size(), new MappedLine(charset), consumer);
+		}
+	}
+
+	public static void eachLine(File file, Charset charset, MappedLineConsumer consumer) throws IOException {
+		eachLine(file.toPath(), charset, consumer);
+	}
+
+	public static void eachLine(Path path, Charset charset, MappedLineConsumer consumer, int parallelism) throws IOException {
+		checkLineCharset(charset);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long[] bounds = splitLines(channel, channel.size(), LINE_CHUNK_SIZE);
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+
+			try {
+				List<Future<?>> futures = new ArrayList<>(bounds.length - 1);
+				for (int i = 1; i < bounds.length; ++i) {
+					long start = bounds[i - 1];
+					long end = bounds[i];
+					futures.add(executor.submit(() -> {
+						scanRange(channel, start, end, new MappedLine(charset), consumer);
+						return null;
+					}));
+				}
+
+				for (Future<?> future : futures)
+					await(future);
+			} finally {
+				terminate(executor);
+			}
+		}
+	}
+
+	public static <T> void eachLine(Path path, Charset charset, LineParser<T> parser, Consumer<? super T> consumer,
+									int parallelism) throws IOException {
+		checkLineCharset(charset);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long[] bounds = splitLines(channel, channel.size(), LINE_CHUNK_SIZE);
+			int maxPending = 2 * Math.max(1, parallelism);
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+
+			try {
+				Deque<Future<List<T>>> pending = new ArrayDeque<>(maxPending);
+				for (int i = 1; i < bounds.length; ++i) {
+					long start = bounds[i - 1];
+					long end = bounds[i];
+					pending.add(executor.submit(() -> {
+						List<T> results = new ArrayList<>();
+						scanRange(channel, start, end, new MappedLine(charset), line -> {
+							T result = parser.parse(line);
+							if (result != null) results.add(result);
+						});
+						return results;
+					}));
+
+					if (pending.size() >= maxPending)
+						await(pending.poll()).forEach(consumer);
+				}
+
+				while (!pending.isEmpty())
+					await(pending.poll()).forEach(consumer);
+			} finally {
+				terminate(executor);
+			}
+		}
+	}
+
+	public static String[] tail(Path path, int count, Charset charset) throws IOException {
+		checkLineCharset(charset);
+		if (count <= 0) return new String[0];
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = tailStart(channel, size, count);
+			if (size - start > MAX_ARRAY_SIZE)
+				throw new IOException("Last " + count + " lines are too large to read into memory: " + path);
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) (size - start));
+			readFully(channel, buffer, start);
+			return splitText(new String(buffer.array(), 0, buffer.position(), charset));
+		}
+	}
+
+	public static String[] tail(File file, int count, Charset charset) throws IOException {
+		return tail(file.toPath(), count, charset);
+	}
+
+	public static String[] tail(String path, int count, Charset charset) throws IOException {
+		return tail(Path.of(path), count, charset);
+	}
+
+	public static FileFollower follow(Path path, Charset charset, LineConsumer consumer, int initialLines,
+									  long pollMillis) throws IOException {
+		checkLineCharset(charset);
+		return new FileFollower(path, charset, consumer, initialLines, pollMillis);
+	}
+
+	public static FileFollower follow(Path path, Charset charset, LineConsumer consumer) throws IOException {
+		return follow(path, charset, consumer, 0, 250);
+	}
+
+	public static FileFollower follow(String path, LineConsumer consumer) throws IOException {
+		return follow(Path.of(path), Charset.defaultCharset(), consumer);
+	}
+
+	static long tailStart(FileChannel channel, long size, int count) throws IOException {
+		if (count <= 0) return size;
+
+		ByteBuffer buffer = BufferPool.acquireDirect(TAIL_BLOCK_SIZE);
+		int newLines = 0;
+
+		try {
+			for (long position = size; position > 0; ) {
+				int length = (int) Math.min(TAIL_BLOCK_SIZE, position);
+				position -= length;
+
+				buffer.clear().limit(length);
+				readFully(channel, buffer, position);
+
+				for (int i = length - 1; i >= 0; --i) {
+					if (buffer.get(i) == '\n' && position + i < size - 1 && ++newLines == count)
+						return position + i + 1;
+				}
+			}
+
+			return 0;
+		} finally {
+			BufferPool.release(buffer);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				break;
+		}
+	}
+
+	private static String[] splitText(String text) {
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+
+		for (int end; (end = text.indexOf('\n', start)) >= 0; start = end + 1)
+			lines.add(text.substring(start, end > start && text.charAt(end - 1) == '\r' ? end - 1 : end));
+
+		if (start < text.length())
+			lines.add(text.substring(start));
+
+		return lines.toArray(String[]::new);
+	}
+
+	private static void readLines(InputStream input, LineConsumer consumer) throws IOException {
+		CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		byte[] bytes = BufferPool.acquire(DEFAULT_BUFFER_SIZE);
+		char[] chars = BufferPool.acquireChars(DEFAULT_BUFFER_SIZE);
+
+		try {
+			ByteBuffer in = ByteBuffer.wrap(bytes);
+			CharBuffer out = CharBuffer.wrap(chars);
+			LineSplitter splitter = new LineSplitter(consumer);
+			boolean endOfInput = false;
+
+			while (!endOfInput) {
+				int amount = input.read(bytes, in.position(), in.remaining());
+				if (amount < 0) endOfInput = true;
+				else in.position(in.position() + amount);
+
+				in.flip();
+				CoderResult result;
+				do {
+					result = decoder.decode(in, out, endOfInput);
+					splitter.split(chars, out.position());
+					out.clear();
+				} while (result.isOverflow());
+				in.compact();
+			}
+
+			while (decoder.flush(out).isOverflow()) {
+				splitter.split(chars, out.position());
+				out.clear();
+			}
+			splitter.split(chars, out.position());
+			splitter.finish();
+		} finally {
+			BufferPool.release(chars);
+			BufferPool.release(bytes);
+		}
+	}
+
+	private static void checkLineCharset(Charset charset) {
+		if (!Arrays.equals("\n".getBytes(charset), new byte[] {'\n'}))
+			throw new IllegalArgumentException("Unsupported charset for mapped line scanning: " + charset);
+	}
+
+	private static void scanRange(FileChannel channel, long start, long end, MappedLine line,
+								  MappedLineConsumer consumer) throws IOException {
+		long position = start;
+		long window = MAPPED_WINDOW_SIZE;
+
+		while (position < end) {
+			int length = (int) Math.min(window, end - position);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			int lineStart = scanLines(buffer, length, position, line, consumer);
+
+			if (position + length == end) {
+				if (lineStart < length)
+					consumer.consume(line.wrap(buffer, position, lineStart, trimCarriageReturn(buffer, lineStart, length)));
+				break;
+			}
+
+			if (lineStart == 0) {
+				if (window >= Integer.MAX_VALUE)
+					throw new IOException("Line at offset " + position + " exceeds " + Integer.MAX_VALUE + " bytes");
+				window = Math.min(window * 2, Integer.MAX_VALUE);
+			} else {
+				window = MAPPED_WINDOW_SIZE;
+			}
+
+			position += lineStart;
+		}
+	}
+
+	private static long[] splitLines(FileChannel channel, long size, long chunkSize) throws IOException {
+		List<Long> bounds = new ArrayList<>();
+		bounds.add(0L);
+
+		long position = chunkSize;
+		while (position < size) {
+			long lineStart = nextLineStart(channel, position - 1, size);
+			if (lineStart >= size) break;
+			bounds.add(lineStart);
+			position = lineStart + chunkSize;
+		}
+
+		bounds.add(size);
+		return bounds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = BufferPool.acquireDirect(8192);
+
+		try {
+			while (position < size) {
+				buffer.clear();
+				int amount = channel.read(buffer, position);
+				if (amount <= 0) break;
+
+				for (int i = 0; i < amount; ++i) {
+					if (buffer.get(i) == '\n')
+						return position + i + 1;
+				}
+				position += amount;
+			}
+
+			return size;
+		} finally {
+			BufferPool.release(buffer);
+		}
+	}
+
+	static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a background task");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	private static void terminate(ExecutorService executor) {
+		executor.shutdownNow();
+
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	private static int scanLines(MappedByteBuffer buffer, int length, long offset, MappedLine line,
+								 MappedLineConsumer consumer) throws InterruptedIOException {
+		int lineStart = 0;
+
+		for (int i = 0; i < length; ++i) {
+			if (buffer.get(i) == '\n') {
+				if (Thread.currentThread().isInterrupted())
+					throw new InterruptedIOException("Interrupted while scanning lines");
+				consumer.consume(line.wrap(buffer, offset, lineStart, trimCarriageReturn(buffer, lineStart, i)));
+				lineStart = i + 1;
+			}
+		}
+
+		return lineStart;
+	}
+
+	private static int trimCarriageReturn(ByteBuffer buffer, int start, int end) {
+		return end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+	}
 	
 	public static void writeAllBytes(File file, byte[] bytes, boolean append) throws IOException {
 		try (FileOutputStream output = new FileOutputStream(file, append)) {
@@ -332,6 +1477,20 @@ public final class FileUtil {
 		}
     }
 	
+	public static void writeAllText(OutputStream output, String text, Charset charset) throws IOException {
+		try (output) {
+			output.write(text.getBytes(charset));
+		}
+	}
+	
+	public static void writeAllText(File file, String text, Charset charset, boolean append) throws IOException {
+		writeAllBytes(file, text.getBytes(charset), append);
+	}
+	
+	public static void writeAllText(String path, String text, Charset charset, boolean append) throws IOException {
+		writeAllText(new File(path), text, charset, append);
+	}
+	
 	public static void writeAllLines(OutputStream output, String[] lines) {
 		String newLine = String.format("%n");
 		try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(output), true)) {
@@ -354,6 +1513,114 @@ public final class FileUtil {
 		}
     }
 	
+	public static void writeAllLines(OutputStream output, String[] lines, Charset charset) throws IOException {
+		String newLine = System.lineSeparator();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, charset), DEFAULT_BUFFER_SIZE)) {
+			for (int i = 0; i < lines.length; ++i) {
+				if (i > 0) writer.write(newLine);
+				writer.write(lines[i]);
+			}
+		}
+	}
+	
+	public static void writeAllLines(File file, String[] lines, Charset charset, boolean append) throws IOException {
+		writeAllLines(new FileOutputStream(file, append), lines, charset);
+	}
+	
+	public static void writeAllLines(String path, String[] lines, Charset charset, boolean append) throws IOException {
+		writeAllLines(new File(path), lines, charset, append);
+	}
+	
+	public static void writeAllBytesAtomically(Path path, byte[] bytes, boolean durable) throws IOException {
+		Path temp = writeTemp(path, bytes, durable);
+		moveAtomically(temp, path);
+		if (durable) forceDirectory(path.toAbsolutePath().getParent());
+	}
+	
+	public static void writeAllBytesAtomically(File file, byte[] bytes, boolean durable) throws IOException {
+		writeAllBytesAtomically(file.toPath(), bytes, durable);
+	}
+	
+	public static void writeAllTextAtomically(Path path, String text, Charset charset, boolean durable) throws IOException {
+		writeAllBytesAtomically(path, text.getBytes(charset), durable);
+	}
+	
+	public static void writeAllTextAtomically(File file, String text, Charset charset, boolean durable) throws IOException {
+		writeAllTextAtomically(file.toPath(), text, charset, durable);
+	}
+	
+	public static void writeAllLinesAtomically(Path path, String[] lines, Charset charset, boolean durable) throws IOException {
+		writeAllTextAtomically(path, String.join(System.lineSeparator(), lines), charset, durable);
+	}
+	
+	public static void writeAllLinesAtomically(File file, String[] lines, Charset charset, boolean durable) throws IOException {
+		writeAllLinesAtomically(file.toPath(), lines, charset, durable);
+	}
+	
+	public static AtomicWriteBatch newAtomicWriteBatch(int maxPending) {
+		return new AtomicWriteBatch(maxPending);
+	}
+
+	static Path writeTemp(Path path, byte[] bytes, boolean force) throws IOException {
+		Path temp = createSibling(path.toAbsolutePath());
+
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			if (force) channel.force(true);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+
+		return temp;
+	}
+
+	private static Path createSibling(Path path) throws IOException {
+		Path dir = path.getParent();
+		Path temp;
+
+		while (true) {
+			String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+			temp = dir.resolve("." + path.getFileName() + "." + suffix + ".tmp");
+			try {
+				Files.createFile(temp);
+				break;
+			} catch (FileAlreadyExistsException e) {
+				// Try another name
+			}
+		}
+
+		try {
+			PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+			if (view != null && Files.exists(path))
+				Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+
+		return temp;
+	}
+
+	static void moveAtomically(Path temp, Path path) throws IOException {
+		try {
+			Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	static void forceDirectory(Path dir) {
+		try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// Some platforms (e.g. Windows) cannot open or sync directories
+		}
+	}
+	
 	///////////////// INNER CLASSES AND INTERFACES ///////////////////
 	
 	@FunctionalInterface
@@ -361,6 +1628,35 @@ public final class FileUtil {
 		void consume(String line);
 	}
 	
+	@FunctionalInterface
+	public interface ProgressListener {
+		boolean onProgress(long transferred, long total);
+
+		default boolean onProgress(long transferred, long total, long bytesPerSecond) {
+			return onProgress(transferred, total);
+		}
+	}
+	
+	@FunctionalInterface
+	public interface MappedLineConsumer {
+		void consume(MappedLine line);
+	}
+
+	@FunctionalInterface
+	public interface LineParser<T> {
+		T parse(MappedLine line);
+	}
+	
+	@FunctionalInterface
+	private interface PathHasher {
+		String hash(Path path) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface ZipAction {
+		void write(ZipWriter writer) throws IOException;
+	}
+	
 	@FunctionalInterface
 	public interface TreeWalker {
 		void onLeaf(File node);
@@ -371,9 +1667,60 @@ public final class FileUtil {
 
 		default void afterExitingDirectory(File node) {
 		}
+
+		default void onLeaf(Path node, BasicFileAttributes attributes) {
+			onLeaf(node.toFile());
+		}
+
+		default boolean beforeEnteringDirectory(Path node, BasicFileAttributes attributes) {
+			return beforeEnteringDirectory(node.toFile());
+		}
+
+		default void afterExitingDirectory(Path node) {
+			afterExitingDirectory(node.toFile());
+		}
+
+		/**
+		 * Called when an entry cannot be read or a directory cannot be listed. The entry is skipped
+		 * and the walk goes on with its siblings.
+		 */
+		default void onFailure(Path node, IOException e) {
+		}
+	}
+
+	@FunctionalInterface
+	public interface PathFilter {
+		boolean accept(Path path, BasicFileAttributes attributes);
+
+		default FilterCost getCost() {
+			return FilterCost.UNKNOWN;
+		}
+
+		default CompositeFilter and(PathFilter other) {
+			return CompositeFilter.allOf(this, other);
+		}
+
+		default CompositeFilter or(PathFilter other) {
+			return CompositeFilter.anyOf(this, other);
+		}
+
+		default CompositeFilter negate() {
+			return CompositeFilter.noneOf(this);
+		}
+
+		static PathFilter of(FileFilter filter) {
+			if (filter instanceof PathFilter)
+				return (PathFilter) filter;
+
+			return (path, attributes) -> filter.accept(path.toFile());
+		}
+	}
+
+	public enum FilterCost {
+		NAME, PATH, ATTRIBUTES, UNKNOWN, CONTENT
 	}
 	
-	public static class PatternFilter implements FileFilter {
+	public static class PatternFilter implements FileFilter, PathFilter {
 		private final Pattern pattern;
 		
 		public PatternFilter(Pattern pattern) {
@@ -389,41 +1736,153 @@ public final class FileUtil {
 			return pattern.matcher(file.getPath()).matches();
 		}
 
+		@Override
+		public boolean accept(Path path, BasicFileAttributes attributes) {
+			return pattern.matcher(path.toString()).matches();
+		}
+
+		@Override
+		public FilterCost getCost() {
+			return FilterCost.PATH;
+		}
+
 		public final Pattern getPattern() {
 			return pattern;
 		}
 	}
-	
-	public static class ExtensionFilter implements FileFilter {
-		private final String[] extensions;
-		
-		public ExtensionFilter(String[] extensions) {
-			this.extensions = extensions;
-		}
-		
-		public ExtensionFilter(String extensions) {
-			this(extensions.split("\\s*,\\s*"));
-		}
 
-		@Override
-		public boolean accept(File file) {
-			if (file.isDirectory()) return true;
-			
-			String extension = getExtension(file.getPath());
-			for (String ext : extensions) {
-				if (ext.equalsIgnoreCase(extension))
+	public static class GlobFilter implements FileFilter, PathFilter {
+		private final String[] globs;
+		private final PathMatcher[] nameMatchers;
+		private final PathMatcher[] pathMatchers;
+
+		public GlobFilter(String... globs) {
+			this.globs = globs;
+
+			FileSystem fileSystem = FileSystems.getDefault();
+			List<PathMatcher> nameMatchers = new ArrayList<>();
+			List<PathMatcher> pathMatchers = new ArrayList<>();
+			for (String glob : globs) {
+				PathMatcher matcher = fileSystem.getPathMatcher("glob:" + glob);
+				if (glob.indexOf('/') < 0 && glob.indexOf(File.separatorChar) < 0)
+					nameMatchers.add(matcher);
+				else
+					pathMatchers.add(matcher);
+			}
+
+			this.nameMatchers = nameMatchers.toArray(PathMatcher[]::new);
+			this.pathMatchers = pathMatchers.toArray(PathMatcher[]::new);
+		}
+
+		@Override
+		public boolean accept(File file) {
+			return file.isDirectory() || matches(file.toPath());
+		}
+
+		@Override
+		public boolean accept(Path path, BasicFileAttributes attributes) {
+			return attributes.isDirectory() || matches(path);
+		}
+
+		@Override
+		public FilterCost getCost() {
+			return pathMatchers.length == 0 ? FilterCost.NAME : FilterCost.PATH;
+		}
+
+		boolean matches(Path path) {
+			if (nameMatchers.length > 0) {
+				Path name = path.getFileName();
+				if (name != null) {
+					for (PathMatcher matcher : nameMatchers) {
+						if (matcher.matches(name))
+							return true;
+					}
+				}
+			}
+
+			for (PathMatcher matcher : pathMatchers) {
+				if (matcher.matches(path))
 					return true;
 			}
-			
+
 			return false;
 		}
 
+		public final String[] getGlobs() {
+			return globs;
+		}
+	}
+	
+	public static class ExtensionFilter implements FileFilter, PathFilter {
+		private final String[] extensions;
+		private final String[] table;
+		private final int mask;
+		
+		public ExtensionFilter(String[] extensions) {
+			this.extensions = extensions;
+
+			int capacity = 2;
+			while (capacity < 2 * extensions.length)
+				capacity <<= 1;
+
+			table = new String[capacity];
+			mask = capacity - 1;
+			for (String extension : extensions) {
+				if (!contains(extension, 0, extension.length()))
+					table[indexOf(extension, 0, extension.length())] = extension;
+			}
+		}
+		
+		public ExtensionFilter(String extensions) {
+			this(extensions.split("\\s*,\\s*"));
+		}
+
+		@Override
+		public boolean accept(File file) {
+			return file.isDirectory() || matches(file.getPath());
+		}
+
+		@Override
+		public boolean accept(Path path, BasicFileAttributes attributes) {
+			return attributes.isDirectory() || matches(path.toString());
+		}
+
+		@Override
+		public FilterCost getCost() {
+			return FilterCost.NAME;
+		}
+
+		boolean matches(String path) {
+			int lastDot = path.lastIndexOf('.');
+			int start = lastDot > path.lastIndexOf(File.separatorChar) ? lastDot : path.length();
+			return contains(path, start, path.length() - start);
+		}
+
+		private boolean contains(String text, int start, int length) {
+			String candidate = table[indexOf(text, start, length)];
+			return candidate != null && candidate.length() == length;
+		}
+
+		private int indexOf(String text, int start, int length) {
+			int hash = 0;
+			for (int i = start; i < start + length; ++i)
+				hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+
+			int index = (hash ^ (hash >>> 16)) & mask;
+			for (String candidate; (candidate = table[index]) != null; index = (index + 1) & mask) {
+				if (candidate.length() == length && candidate.regionMatches(true, 0, text, start, length))
+					break;
+			}
+
+			return index;
+		}
+
 		public final String[] getExtensions() {
 			return extensions;
 		}
 	}
 	
-	public static class ContentTypeFilter implements FileFilter {
+	public static class ContentTypeFilter implements FileFilter, PathFilter {
 		private final String[] contentTypes;
 		private Pattern[] patterns;
 		
@@ -438,21 +1897,38 @@ public final class FileUtil {
 
 		@Override
 		public boolean accept(File file) {
-			if (file.isDirectory()) return true;
-			
+			return file.isDirectory() || matches(file.toPath(), null);
+		}
+
+		@Override
+		public boolean accept(Path path, BasicFileAttributes attributes) {
+			return attributes.isDirectory() || matches(path, attributes);
+		}
+
+		private boolean matches(Path path, BasicFileAttributes attributes) {
 			try {
-				String contentType = getContentType(file);
-				for (Pattern pattern : patterns) {
-					if (pattern.matcher(contentType).matches())
-						return true;
-				}
+				return matches(getContentType(path, attributes));
 			} catch (IOException e) {
-				e.printStackTrace();
+				return false;
+			}
+		}
+
+		boolean matches(String contentType) {
+			if (contentType == null) return false;
+
+			for (Pattern pattern : patterns) {
+				if (pattern.matcher(contentType).matches())
+					return true;
 			}
 			
 			return false;
 		}
 
+		@Override
+		public FilterCost getCost() {
+			return FilterCost.CONTENT;
+		}
+
 		public final String[] getContentTypes() {
 			return contentTypes;
 		}
@@ -465,4 +1941,738 @@ public final class FileUtil {
 			}
 		}
 	}
+	
+	public static class SizeFilter implements FileFilter, PathFilter {
+		private final long minSize;
+		private final long maxSize;
+
+		public SizeFilter(long minSize, long maxSize) {
+			this.minSize = minSize;
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public boolean accept(File file) {
+			return file.isDirectory() || matches(file.length());
+		}
+
+		@Override
+		public boolean accept(Path path, BasicFileAttributes attributes) {
+			return attributes.isDirectory() || matches(attributes.size());
+		}
+
+		@Override
+		public FilterCost getCost() {
+			return FilterCost.ATTRIBUTES;
+		}
+
+		private boolean matches(long size) {
+			return size >= minSize && size <= maxSize;
+		}
+
+		public final long getMinSize() {
+			return minSize;
+		}
+
+		public final long getMaxSize() {
+			return maxSize;
+		}
+	}
+
+	public static final class CompositeFilter implements FileFilter, PathFilter {
+		private static final Comparator<PathFilter> BY_COST = Comparator.comparing(PathFilter::getCost);
+
+		private final Mode mode;
+		private final PathFilter[] filters;
+		private final FilterCost cost;
+
+		private CompositeFilter(Mode mode, PathFilter[] filters) {
+			this.mode = mode;
+			this.filters = filters.clone();
+			Arrays.sort(this.filters, BY_COST);
+			this.cost = this.filters.length == 0 ? FilterCost.NAME : this.filters[this.filters.length - 1].getCost();
+		}
+
+		public static CompositeFilter allOf(PathFilter... filters) {
+			return new CompositeFilter(Mode.ALL, filters);
+		}
+
+		public static CompositeFilter anyOf(PathFilter... filters) {
+			return new CompositeFilter(Mode.ANY, filters);
+		}
+
+		public static CompositeFilter noneOf(PathFilter... filters) {
+			return new CompositeFilter(Mode.NONE, filters);
+		}
+
+		@Override
+		public boolean accept(File file) {
+			try {
+				return accept(file.toPath(), Files.readAttributes(file.toPath(), BasicFileAttributes.class));
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public boolean accept(Path path, BasicFileAttributes attributes) {
+			switch (mode) {
+				case ALL:
+					for (PathFilter filter : filters) {
+						if (!filter.accept(path, attributes))
+							return false;
+					}
+					return true;
+				case ANY:
+					for (PathFilter filter : filters) {
+						if (filter.accept(path, attributes))
+							return true;
+					}
+					return false;
+				default:
+					if (attributes.isDirectory()) return true;
+					for (PathFilter filter : filters) {
+						if (filter.accept(path, attributes))
+							return false;
+					}
+					return true;
+			}
+		}
+
+		@Override
+		public FilterCost getCost() {
+			return cost;
+		}
+
+		private enum Mode {
+			ALL, ANY, NONE
+		}
+	}
+
+	public static final class MappedLine implements CharSequence {
+		private final Charset charset;
+		private final CharsetDecoder decoder;
+		private ByteBuffer buffer;
+		private ByteBuffer view;
+		private long offset;
+		private int start;
+		private int end;
+		private CharBuffer chars;
+		private boolean decoded;
+
+		MappedLine(Charset charset) {
+			this.charset = charset;
+			this.decoder = StandardCharsets.ISO_8859_1.equals(charset) ? null : charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+
+		MappedLine wrap(ByteBuffer buffer, long bufferOffset, int start, int end) {
+			if (this.buffer != buffer) {
+				this.buffer = buffer;
+				this.view = buffer.duplicate();
+			}
+			this.offset = bufferOffset + start;
+			this.start = start;
+			this.end = end;
+			this.decoded = false;
+			return this;
+		}
+
+		public Charset getCharset() {
+			return charset;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public int byteLength() {
+			return end - start;
+		}
+
+		public byte byteAt(int index) {
+			return buffer.get(start + Objects.checkIndex(index, end - start));
+		}
+
+		public void copyBytes(byte[] dest, int destOffset) {
+			buffer.get(start, dest, destOffset, end - start);
+		}
+
+		@Override
+		public int length() {
+			return decoder == null ? end - start : decode().remaining();
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (decoder == null)
+				return (char) (byteAt(index) & 0xFF);
+
+			CharBuffer decodedChars = decode();
+			return decodedChars.get(Objects.checkIndex(index, decodedChars.remaining()));
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			if (decoder != null)
+				return decode().toString();
+
+			byte[] bytes = new byte[end - start];
+			copyBytes(bytes, 0);
+			return new String(bytes, charset);
+		}
+
+		private CharBuffer decode() {
+			if (decoded) return chars;
+
+			int capacity = (int) Math.ceil((end - start) * (double) decoder.maxCharsPerByte());
+			if (chars == null || chars.capacity() < capacity)
+				chars = CharBuffer.allocate(Math.max(capacity, 128));
+
+			chars.clear();
+			view.limit(end).position(start);
+			decoder.reset();
+			decoder.decode(view, chars, true);
+			decoder.flush(chars);
+			chars.flip();
+			decoded = true;
+			return chars;
+		}
+	}
+
+	public static final class TreeResult {
+		private final long startTime = System.nanoTime();
+		private final LongAdder fileCount = new LongAdder();
+		private final LongAdder byteCount = new LongAdder();
+		private final Map<File, IOException> failures = new ConcurrentHashMap<>();
+		private long elapsedTime;
+
+		TreeResult() {
+		}
+
+		public long getFileCount() {
+			return fileCount.sum();
+		}
+
+		public long getByteCount() {
+			return byteCount.sum();
+		}
+
+		public Map<File, IOException> getFailures() {
+			return Collections.unmodifiableMap(failures);
+		}
+
+		public boolean isSuccessful() {
+			return failures.isEmpty();
+		}
+
+		public long getElapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(elapsedTime);
+		}
+
+		void addFile(long bytes) {
+			fileCount.increment();
+			byteCount.add(bytes);
+		}
+
+		void addFailure(File file, IOException e) {
+			failures.put(file, e);
+		}
+
+		TreeResult complete() {
+			elapsedTime = System.nanoTime() - startTime;
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "TreeResult {files = " + getFileCount() + ", bytes = " + getByteCount() +
+					", failures = " + failures.size() + ", elapsed = " + getElapsedMillis() + " ms}";
+		}
+	}
+
+	public static final class SyncOptions {
+		private boolean compareContent;
+		private boolean deleteExtraneous;
+		private boolean dryRun;
+		private String algorithm = "SHA-256";
+
+		public boolean isCompareContent() {
+			return compareContent;
+		}
+
+		public SyncOptions compareContent(boolean compareContent) {
+			this.compareContent = compareContent;
+			return this;
+		}
+
+		public boolean isDeleteExtraneous() {
+			return deleteExtraneous;
+		}
+
+		public SyncOptions deleteExtraneous(boolean deleteExtraneous) {
+			this.deleteExtraneous = deleteExtraneous;
+			return this;
+		}
+
+		public boolean isDryRun() {
+			return dryRun;
+		}
+
+		public SyncOptions dryRun(boolean dryRun) {
+			this.dryRun = dryRun;
+			return this;
+		}
+
+		public String getAlgorithm() {
+			return algorithm;
+		}
+
+		public SyncOptions algorithm(String algorithm) {
+			this.algorithm = algorithm;
+			return this;
+		}
+	}
+
+	public static final class CopyOptions {
+		private ProgressListener listener;
+		private BandwidthLimiter limiter;
+		private int bufferSize = DEFAULT_BUFFER_SIZE;
+		private long expectedSize = -1;
+
+		public ProgressListener getListener() {
+			return listener;
+		}
+
+		public CopyOptions listener(ProgressListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		public BandwidthLimiter getLimiter() {
+			return limiter;
+		}
+
+		public CopyOptions limiter(BandwidthLimiter limiter) {
+			this.limiter = limiter;
+			return this;
+		}
+
+		public CopyOptions bandwidthLimit(long bytesPerSecond) {
+			this.limiter = bytesPerSecond > 0 ? new BandwidthLimiter(bytesPerSecond) : null;
+			return this;
+		}
+
+		public int getBufferSize() {
+			return bufferSize;
+		}
+
+		public CopyOptions bufferSize(int bufferSize) {
+			if (bufferSize <= 0)
+				throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		public long getExpectedSize() {
+			return expectedSize;
+		}
+
+		public CopyOptions expectedSize(long expectedSize) {
+			this.expectedSize = expectedSize;
+			return this;
+		}
+	}
+
+	public static final class SyncResult {
+		private final boolean dryRun;
+		private final long startTime = System.nanoTime();
+		private final List<Path> copied = new ArrayList<>();
+		private final List<Path> deleted = new ArrayList<>();
+		private final Map<Path, IOException> failures = new LinkedHashMap<>();
+		private long unchangedCount;
+		private long byteCount;
+		private long elapsedTime;
+
+		SyncResult(boolean dryRun) {
+			this.dryRun = dryRun;
+		}
+
+		public boolean isDryRun() {
+			return dryRun;
+		}
+
+		public List<Path> getCopied() {
+			return Collections.unmodifiableList(copied);
+		}
+
+		public List<Path> getDeleted() {
+			return Collections.unmodifiableList(deleted);
+		}
+
+		public long getUnchangedCount() {
+			return unchangedCount;
+		}
+
+		public long getByteCount() {
+			return byteCount;
+		}
+
+		public Map<Path, IOException> getFailures() {
+			return Collections.unmodifiableMap(failures);
+		}
+
+		public boolean isSuccessful() {
+			return failures.isEmpty();
+		}
+
+		public long getElapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(elapsedTime);
+		}
+
+		void addCopied(Path path, long bytes) {
+			copied.add(path);
+			byteCount += bytes;
+		}
+
+		void addDeleted(Path path) {
+			deleted.add(path);
+		}
+
+		void addUnchanged() {
+			++unchangedCount;
+		}
+
+		void addFailure(Path path, IOException e) {
+			failures.put(path, e);
+		}
+
+		SyncResult complete() {
+			elapsedTime = System.nanoTime() - startTime;
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "SyncResult {copied = " + copied.size() + ", deleted = " + deleted.size() +
+					", unchanged = " + unchangedCount + ", bytes = " + byteCount + ", failures = " + failures.size() +
+					", dryRun = " + dryRun + ", elapsed = " + getElapsedMillis() + " ms}";
+		}
+	}
+
+	private static final class Progress {
+		private final ProgressListener listener;
+		private final long total;
+		private final long startTime = System.nanoTime();
+		private long base;
+
+		Progress(ProgressListener listener, long total) {
+			this.listener = listener;
+			this.total = total;
+		}
+
+		boolean isTracking() {
+			return listener != null;
+		}
+
+		boolean update(long transferred) {
+			if (listener == null) return true;
+
+			long done = base + transferred;
+			long elapsed = System.nanoTime() - startTime;
+			long bytesPerSecond = elapsed > 0 ? (long) (done * 1e9 / elapsed) : 0;
+			return listener.onProgress(done, total, bytesPerSecond);
+		}
+
+		void advance(long bytes) {
+			base += bytes;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class CopyTreeTask extends RecursiveAction {
+		private final File source;
+		private final File dest;
+		private final TreeResult result;
+
+		CopyTreeTask(File source, File dest, TreeResult result) {
+			this.source = source;
+			this.dest = dest;
+			this.result = result;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				if (!source.isDirectory()) {
+					result.addFile(copyFile(source, dest));
+					return;
+				}
+
+				Files.createDirectories(dest.toPath());
+
+				File[] children = source.listFiles();
+				if (children == null)
+					throw new IOException("Cannot list directory " + source);
+
+				List<CopyTreeTask> tasks = new ArrayList<>(children.length);
+				for (File child : children)
+					tasks.add(new CopyTreeTask(child, new File(dest, child.getName()), result));
+
+				invokeAll(tasks);
+			} catch (IOException e) {
+				result.addFailure(source, e);
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class DeleteTreeTask extends RecursiveAction {
+		private final File file;
+		private final TreeResult result;
+
+		DeleteTreeTask(File file, TreeResult result) {
+			this.file = file;
+			this.result = result;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				if (Files.isDirectory(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+					File[] children = file.listFiles();
+					if (children == null)
+						throw new IOException("Cannot list directory " + file);
+
+					List<DeleteTreeTask> tasks = new ArrayList<>(children.length);
+					for (File child : children)
+						tasks.add(new DeleteTreeTask(child, result));
+
+					invokeAll(tasks);
+					Files.delete(file.toPath());
+				} else {
+					long length = file.length();
+					Files.delete(file.toPath());
+					result.addFile(length);
+				}
+			} catch (IOException e) {
+				result.addFailure(file, e);
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class WalkTreeTask extends RecursiveAction {
+		private final Path dir;
+		private final BasicFileAttributes attributes;
+		private final PathFilter filter;
+		private final TreeWalker treeWalker;
+
+		WalkTreeTask(Path dir, BasicFileAttributes attributes, PathFilter filter, TreeWalker treeWalker) {
+			this.dir = dir;
+			this.attributes = attributes;
+			this.filter = filter;
+			this.treeWalker = treeWalker;
+		}
+
+		@Override
+		protected void compute() {
+			if (!treeWalker.beforeEnteringDirectory(dir, attributes)) return;
+
+			List<WalkTreeTask> tasks = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+				for (Path child : stream) {
+					BasicFileAttributes childAttributes;
+					try {
+						childAttributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					} catch (IOException e) {
+						treeWalker.onFailure(child, e);
+						continue;
+					}
+					if (!filter.accept(child, childAttributes)) continue;
+
+					if (childAttributes.isDirectory())
+						tasks.add(new WalkTreeTask(child, childAttributes, filter, treeWalker));
+					else
+						treeWalker.onLeaf(child, childAttributes);
+				}
+			} catch (IOException e) {
+				treeWalker.onFailure(dir, e);
+			} catch (DirectoryIteratorException e) {
+				treeWalker.onFailure(dir, e.getCause());
+			}
+
+			invokeAll(tasks);
+			treeWalker.afterExitingDirectory(dir);
+		}
+	}
+
+	private static final class LineSplitter {
+		private final LineConsumer consumer;
+		private final StringBuilder line = new StringBuilder();
+		private boolean skipLineFeed;
+
+		LineSplitter(LineConsumer consumer) {
+			this.consumer = consumer;
+		}
+
+		void split(char[] chars, int length) {
+			int start = 0;
+
+			for (int i = 0; i < length; ++i) {
+				char c = chars[i];
+				if (skipLineFeed) {
+					skipLineFeed = false;
+					if (c == '\n') {
+						start = i + 1;
+						continue;
+					}
+				}
+
+				if (c == '\n' || c == '\r') {
+					if (line.length() == 0) {
+						consumer.consume(new String(chars, start, i - start));
+					} else {
+						consumer.consume(line.append(chars, start, i - start).toString());
+						line.setLength(0);
+					}
+					skipLineFeed = c == '\r';
+					start = i + 1;
+				}
+			}
+
+			line.append(chars, start, length - start);
+		}
+
+		void finish() {
+			if (line.length() > 0) consumer.consume(line.toString());
+		}
+	}
+
+	private static final class TreeSpliterator implements Spliterator<Path> {
+		private final Deque<Path> pendingDirs = new ArrayDeque<>();
+		private final Deque<Path> pendingFiles = new ArrayDeque<>();
+		private final PathFilter filter;
+		private final Set<TreeSpliterator> spliterators;
+		private DirectoryStream<Path> directoryStream;
+		private Iterator<Path> iterator;
+
+		TreeSpliterator(Path root, PathFilter filter, Set<TreeSpliterator> spliterators) {
+			this.filter = filter;
+			this.spliterators = spliterators;
+			pendingDirs.add(root);
+			spliterators.add(this);
+		}
+
+		private TreeSpliterator(Deque<Path> dirs, PathFilter filter, Set<TreeSpliterator> spliterators) {
+			this.filter = filter;
+			this.spliterators = spliterators;
+			pendingDirs.addAll(dirs);
+			spliterators.add(this);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Path> action) {
+			if (!pendingFiles.isEmpty()) {
+				action.accept(pendingFiles.poll());
+				return true;
+			}
+
+			try {
+				while (true) {
+					if (iterator != null && iterator.hasNext()) {
+						Path child = iterator.next();
+						BasicFileAttributes attrs =
+								Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+						if (!filter.accept(child, attrs)) continue;
+
+						if (attrs.isDirectory()) {
+							pendingDirs.push(child);
+						} else {
+							action.accept(child);
+							return true;
+						}
+					} else {
+						close();
+						if (pendingDirs.isEmpty()) {
+							spliterators.remove(this);
+							return false;
+						}
+						directoryStream = Files.newDirectoryStream(pendingDirs.pop());
+						iterator = directoryStream.iterator();
+					}
+				}
+			} catch (IOException e) {
+				close();
+				throw new UncheckedIOException(e);
+			} catch (DirectoryIteratorException e) {
+				close();
+				throw new UncheckedIOException(e.getCause());
+			}
+		}
+
+		@Override
+		public Spliterator<Path> trySplit() {
+			while (iterator == null && pendingFiles.isEmpty() && pendingDirs.size() == 1)
+				expand(pendingDirs.pop());
+
+			int count = iterator != null || !pendingFiles.isEmpty() ? pendingDirs.size() : pendingDirs.size() - 1;
+			if (count <= 0) return null;
+
+			Deque<Path> dirs = new ArrayDeque<>();
+			for (int i = (count + 1) / 2; i > 0; --i)
+				dirs.add(pendingDirs.removeLast());
+
+			return new TreeSpliterator(dirs, filter, spliterators);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return DISTINCT | NONNULL;
+		}
+
+		private void expand(Path dir) {
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+				for (Path child : children) {
+					BasicFileAttributes attrs =
+							Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					if (!filter.accept(child, attrs)) continue;
+
+					if (attrs.isDirectory())
+						pendingDirs.push(child);
+					else
+						pendingFiles.add(child);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (DirectoryIteratorException e) {
+				throw new UncheckedIOException(e.getCause());
+			}
+		}
+
+		void close() {
+			if (directoryStream == null) return;
+
+			try {
+				directoryStream.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				directoryStream = null;
+				iterator = null;
+			}
+		}
+	}
 }
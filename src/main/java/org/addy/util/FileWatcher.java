@@ -0,0 +1,238 @@
+package org.addy.util;
+
+import java.io.Closeable;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public final class FileWatcher implements Closeable {
+	private static final int MAX_DELAY_FACTOR = 10;
+
+	private final Path root;
+	private final FileFilter filter;
+	private final ChangeListener listener;
+	private final long debounceNanos;
+	private final Executor executor;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> keys = new HashMap<>();
+	private final Map<Path, ChangeKind> pending = new LinkedHashMap<>();
+	private volatile boolean closed;
+	private long firstEventTime;
+	private long lastEventTime;
+
+	FileWatcher(Path root, FileFilter filter, ChangeListener listener, long debounceMillis, Executor executor)
+			throws IOException {
+		this.root = root;
+		this.filter = filter;
+		this.listener = listener;
+		this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, debounceMillis));
+		this.executor = executor;
+		this.watchService = root.getFileSystem().newWatchService();
+
+		registerTree(root, false);
+
+		Thread thread = new Thread(this::run, "FileWatcher-" + root.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		watchService.close();
+	}
+
+	private void run() {
+		try {
+			while (!closed) {
+				WatchKey key = pending.isEmpty() ? watchService.take()
+						: watchService.poll(debounceNanos, TimeUnit.NANOSECONDS);
+
+				if (key != null) processEvents(key);
+
+				long now = System.nanoTime();
+				if (!pending.isEmpty() && (now - lastEventTime >= debounceNanos
+						|| now - firstEventTime >= MAX_DELAY_FACTOR * debounceNanos))
+					flush();
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// Closed or interrupted
+		} finally {
+			closed = true;
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				// Already stopping
+			}
+		}
+	}
+
+	private void processEvents(WatchKey key) {
+		Path dir = keys.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				record(root, ChangeKind.OVERFLOW);
+				continue;
+			}
+
+			if (dir == null) continue;
+
+			Path path = dir.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+				if (Files.isDirectory(path))
+					registerTree(path, true);
+				else if (filter.accept(path.toFile()))
+					record(path, ChangeKind.CREATED);
+			} else if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+				if (!Files.isDirectory(path) && filter.accept(path.toFile()))
+					record(path, ChangeKind.MODIFIED);
+			} else if (filter.accept(path.toFile())) {
+				record(path, ChangeKind.DELETED);
+			}
+		}
+
+		if (!key.reset()) keys.remove(key);
+	}
+
+	private void registerTree(Path start, boolean reportFiles) {
+		try {
+			Files.walkFileTree(start, new SimpleFileVisitor<>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					if (!dir.equals(root) && !filter.accept(dir.toFile()))
+						return FileVisitResult.SKIP_SUBTREE;
+
+					WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+					keys.put(key, dir);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (reportFiles && filter.accept(file.toFile()))
+						record(file, ChangeKind.CREATED);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			record(start, ChangeKind.OVERFLOW);
+		}
+	}
+
+	private void record(Path path, ChangeKind kind) {
+		long now = System.nanoTime();
+		if (pending.isEmpty()) firstEventTime = now;
+		lastEventTime = now;
+
+		ChangeKind previous = pending.get(path);
+		ChangeKind merged = previous == null ? kind : previous.merge(kind);
+
+		if (merged == null)
+			pending.remove(path);
+		else
+			pending.put(path, merged);
+	}
+
+	private void flush() {
+		List<ChangeEvent> batch = new ArrayList<>(pending.size());
+		pending.forEach((path, kind) -> batch.add(new ChangeEvent(path, kind)));
+		pending.clear();
+		executor.execute(() -> notify(batch));
+	}
+
+	private void notify(List<ChangeEvent> batch) {
+		try {
+			listener.onChanges(batch);
+		} catch (RuntimeException e) {
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+	}
+
+	///////////////// INNER CLASSES AND INTERFACES ///////////////////
+
+	public enum ChangeKind {
+		CREATED, MODIFIED, DELETED, OVERFLOW;
+
+		ChangeKind merge(ChangeKind next) {
+			if (this == OVERFLOW || next == OVERFLOW) return OVERFLOW;
+
+			return switch (this) {
+				case CREATED -> next == DELETED ? null : CREATED;
+				default -> next == DELETED ? DELETED : MODIFIED;
+			};
+		}
+	}
+
+	@FunctionalInterface
+	public interface ChangeListener {
+		void onChanges(List<ChangeEvent> changes);
+	}
+
+	public static final class ChangeEvent {
+		private final Path path;
+		private final ChangeKind kind;
+
+		ChangeEvent(Path path, ChangeKind kind) {
+			this.path = path;
+			this.kind = kind;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public ChangeKind getKind() {
+			return kind;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof ChangeEvent)) return false;
+			ChangeEvent event = (ChangeEvent) other;
+			return path.equals(event.path) && kind == event.kind;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, kind);
+		}
+
+		@Override
+		public String toString() {
+			return "ChangeEvent {path = " + path + ", kind = " + kind + "}";
+		}
+	}
+}
@@ -20,15 +20,23 @@ import org.jcodec.common.model.Picture;
 import org.jcodec.containers.mp4.demuxer.MP4Demuxer;
 import org.jcodec.scale.AWTUtil;
 
+import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
 
 public final class ImageHelper {
@@ -40,6 +48,10 @@ public final class ImageHelper {
     public static final int AXIS_Y = 2;
     public static final int AXIS_XY = 3;
     
+    public static final int QUALITY_FAST = 1;
+    public static final int QUALITY_BALANCED = 2;
+    public static final int QUALITY_HIGH = 3;
+
     public static final int ORIENTATION_UNDETERMINED = 0;
     public static final int ORIENTATION_NORMAL = 1;
     public static final int ORIENTATION_FLIP_HORIZONTAL = 2;
@@ -66,81 +78,61 @@ public final class ImageHelper {
     }
 
     public static Image resize(Image originalImage, int desiredWidth, int desiredHeight, boolean preserveAspectRatio) {
-        int width = originalImage.getWidth(null);
-        int height = originalImage.getHeight(null);
-        BufferedImage resizedImage;
+        return resize(originalImage, desiredWidth, desiredHeight, preserveAspectRatio, QUALITY_BALANCED,
+                BufferedImage.TYPE_INT_RGB);
+    }
+
+    public static BufferedImage resize(Image originalImage, int desiredWidth, int desiredHeight,
+                                       boolean preserveAspectRatio, int quality, int imageType) {
+        BufferedImage image = buffer(originalImage, BufferedImage.TYPE_INT_ARGB);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int effectiveWidth = desiredWidth, effectiveHeight = desiredHeight;
 
         if (preserveAspectRatio) {
             float aspectRatio = (float) width / height;
             float widthRatio = (float) width / desiredWidth;
             float heightRatio = (float) height / desiredHeight;
-            int effectiveWidth, effectiveHeight;
 
             if (widthRatio > heightRatio) {
-                effectiveWidth = desiredWidth;
-                effectiveHeight = (int) (effectiveWidth / aspectRatio);
+                effectiveHeight = Math.max(1, (int) (effectiveWidth / aspectRatio));
             } else {
-                effectiveHeight = desiredHeight;
-                effectiveWidth = (int) (effectiveHeight * aspectRatio);
+                effectiveWidth = Math.max(1, (int) (effectiveHeight * aspectRatio));
             }
-
-            resizedImage = new BufferedImage(effectiveWidth, effectiveHeight, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g = (Graphics2D) resizedImage.getGraphics();
-			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            g.drawImage(originalImage, 0, 0, effectiveWidth, effectiveHeight, 0, 0, width, height, null);
-            g.dispose();
-        } else {
-            resizedImage = new BufferedImage(desiredWidth, desiredHeight, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g = (Graphics2D) resizedImage.getGraphics();
-			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            g.drawImage(originalImage, 0, 0, desiredWidth, desiredHeight, 0, 0, width, height, null);
-            g.dispose();
         }
 
-        return resizedImage;
+        return Resampler.resize(image, effectiveWidth, effectiveHeight, quality, imageType);
     }
 
     public static Image rotate(Image originalImage, int direction) {
-        int width = originalImage.getWidth(null);
-        int height = originalImage.getHeight(null);
-        double angle = direction * Math.PI / 2;
-        AffineTransform at = AffineTransform.getRotateInstance(angle, width / 2.0, height / 2.0);
-        
-        Image rotatedImage;
-        if (direction == DCW) {
-            rotatedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        } else {
-            at.translate(direction * (width - height) / 2.0, direction * (width - height) / 2.0);
-            rotatedImage = new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB);
+        switch (direction) {
+            case CW:
+                return reorient(originalImage, ORIENTATION_ROTATE_CW);
+            case CCW:
+                return reorient(originalImage, ORIENTATION_ROTATE_CCW);
+            case DCW:
+                return reorient(originalImage, ORIENTATION_ROTATE_180);
+            default:
+                return reorient(originalImage, ORIENTATION_NORMAL);
         }
-        
-        Graphics2D g = (Graphics2D) rotatedImage.getGraphics();
-        g.drawImage(originalImage, at, null);
-        g.dispose();
-
-        return rotatedImage;
     }
 
     public static Image flip(Image originalImage, int axis) {
-        int width = originalImage.getWidth(null);
-        int height = originalImage.getHeight(null);
-        Image flippedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = (Graphics2D) flippedImage.getGraphics();
-
-        if ((axis & AXIS_X) != 0) {
-            for (int i = 0, j = height - 1; i < height; ++i, --j) {
-                g.drawImage(originalImage, 0, i, width, i + 1, 0, j, width, j + 1, null);
-            }
-        }
-
-        if ((axis & AXIS_Y) != 0) {
-            for (int i = 0, j = width - 1; i < width; ++i, --j) {
-                g.drawImage(originalImage, i, 0, i + 1, height, j, 0, j + 1, height, null);
-            }
+        switch (axis) {
+            case AXIS_X:
+                return reorient(originalImage, ORIENTATION_FLIP_VERTICAL);
+            case AXIS_Y:
+                return reorient(originalImage, ORIENTATION_FLIP_HORIZONTAL);
+            case AXIS_XY:
+                return reorient(originalImage, ORIENTATION_ROTATE_180);
+            default:
+                return reorient(originalImage, ORIENTATION_NORMAL);
         }
+    }
 
-        g.dispose();
-        return flippedImage;
+    public static BufferedImage reorient(Image originalImage, int orientation) {
+        BufferedImage image = buffer(originalImage, BufferedImage.TYPE_INT_RGB);
+        return Rasters.reorient(image, orientation);
     }
 
     public static Image crop(Image originalImage, int left, int top, int right, int bottom) {
@@ -164,35 +156,30 @@ public final class ImageHelper {
     }
 
     public static Image grayScale(Image originalImage) {
+        return grayScale(originalImage, false);
+    }
+
+    public static BufferedImage grayScale(Image originalImage, boolean byteGray) {
         BufferedImage image = buffer(originalImage, BufferedImage.TYPE_INT_RGB);
-        int width = image.getWidth();
-        int height = image.getHeight();
-        
-        for (int i = 0; i < height; ++i) {
-            for (int j = 0; j < width; ++j) {
-                Color c = new Color(image.getRGB(j, i));
-                int red = (int) (c.getRed() * 0.299);
-                int green = (int) (c.getGreen() * 0.587);
-                int blue = (int) (c.getBlue() * 0.114);
-                Color newColor = new Color(red + green + blue, red + green + blue, red + green + blue);
-                image.setRGB(j, i, newColor.getRGB());
-            }
-        }
+        if (byteGray) return Rasters.toByteGray(image);
 
+        Rasters.grayScaleInPlace(image);
         return image;
     }
     
     public static Image makeTiles(File[] sourceFiles, int width, int height, Paint bg) throws IOException {
         BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = (Graphics2D) image.getGraphics();
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
         g.setPaint(bg);
         g.fillRect(0, 0, width, height);
         
         int row = 0, col = 0;
         for (File sourceFile : sourceFiles) {
-        	BufferedImage tile = ImageIO.read(sourceFile);
-            paintCover(g, tile, col * width / 2, row * height / 2, width / 2, height / 2);
+            BufferedImage tile = decode(sourceFile, null, width / 2, height / 2, true);
+            if (tile != null) {
+                g.drawImage(resize(tile, width / 2, height / 2, false, QUALITY_BALANCED, BufferedImage.TYPE_CUSTOM),
+                        col * width / 2, row * height / 2, null);
+            }
             if (++col >= 2) {
                 col = 0;
                 if (++row >= 2)
@@ -200,28 +187,80 @@ public final class ImageHelper {
             }
         }
         
+        g.dispose();
         return image;
     }
 
-	private static void paintCover(Graphics2D g, BufferedImage image, int left, int top, int width, int height) {
-		double aspectRatio = (double) image.getWidth() / image.getHeight();
-		double widthRatio = (double) image.getWidth() / width;
-		double heightRatio = (double) image.getHeight() / height;
-		int x, y, h, w;
-		
-		x = y = 0;
-		if (widthRatio > heightRatio) {
-			h = image.getHeight();
-			w = (int) (image.getWidth() * width / (height * aspectRatio));
-			x = (image.getWidth() - w) / 2;
-		} else {
-			w = image.getWidth();
-			h = (int) (image.getHeight() * height / (width / aspectRatio));
-			y = (image.getHeight() - h) / 2;
-		}
-
-		g.drawImage(image, left, top, left + width, top + height, x, y, x + w, y + h, null);
-	}
+    public static BufferedImage makeThumbnail(File imageFile, int maxWidth, int maxHeight, int quality)
+            throws IOException {
+        int orientation = getOrientationFromExif(imageFile);
+        boolean reoriented = orientation > ORIENTATION_NORMAL && orientation <= ORIENTATION_ROTATE_CCW;
+        boolean transposed = orientation >= ORIENTATION_FLIP_VERTICAL_ROTATE_CW && orientation <= ORIENTATION_ROTATE_CCW;
+
+        BufferedImage image = transposed ? decode(imageFile, maxHeight, maxWidth) : decode(imageFile, maxWidth, maxHeight);
+        if (image == null) return null;
+        if (reoriented) image = Rasters.reorient(image, orientation);
+        if (image.getWidth() <= maxWidth && image.getHeight() <= maxHeight) return image;
+
+        return resize(image, maxWidth, maxHeight, true, quality, BufferedImage.TYPE_CUSTOM);
+    }
+
+    public static BufferedImage decode(File imageFile, int targetWidth, int targetHeight) throws IOException {
+        return decode(imageFile, null, targetWidth, targetHeight, false);
+    }
+
+    public static BufferedImage decode(File imageFile, Rectangle region, int targetWidth, int targetHeight)
+            throws IOException {
+        return decode(imageFile, region, targetWidth, targetHeight, false);
+    }
+
+    private static BufferedImage decode(File imageFile, Rectangle region, int targetWidth, int targetHeight,
+                                        boolean cover) throws IOException {
+        if (!imageFile.canRead()) throw new IIOException("Can't read input file: " + imageFile);
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(imageFile)) {
+            if (input == null) throw new IIOException("Can't create an ImageInputStream for " + imageFile);
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                Rectangle bounds = new Rectangle(reader.getWidth(0), reader.getHeight(0));
+                if (region != null) bounds = bounds.intersection(region);
+                if (cover) bounds = coverRegion(bounds, targetWidth, targetHeight);
+                if (bounds.isEmpty())
+                    throw new IllegalArgumentException("Region lies outside of the image: " + region);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(bounds);
+                int factor = subsamplingFactor(bounds.width, bounds.height, targetWidth, targetHeight);
+                if (factor > 1) param.setSourceSubsampling(factor, factor, 0, 0);
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static int subsamplingFactor(int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) return 1;
+        return Math.max(1, Math.min(width / targetWidth, height / targetHeight) / 2);
+    }
+
+    private static Rectangle coverRegion(Rectangle bounds, int width, int height) {
+        if (width <= 0 || height <= 0) return bounds;
+
+        if ((long) bounds.width * height > (long) bounds.height * width) {
+            int w = (int) ((long) bounds.height * width / height);
+            return new Rectangle(bounds.x + (bounds.width - w) / 2, bounds.y, w, bounds.height);
+        } else {
+            int h = (int) ((long) bounds.width * height / width);
+            return new Rectangle(bounds.x, bounds.y + (bounds.height - h) / 2, bounds.width, h);
+        }
+    }
     
     public static int getOrientationFromExif(File jpegFile) {
         try {
@@ -240,42 +279,93 @@ public final class ImageHelper {
     }
     
     public static void correctOrientation(File sourceFile, File destFile) {
+        correctOrientation(sourceFile, destFile, false);
+    }
+
+    /**
+     * Corrects the orientation of a JPEG file. The default mode re-encodes upright pixels without an orientation tag.
+     * The lossless mode is meant for consumers that honor EXIF: the JPEG data is kept untouched (copied first unless
+     * both files are the same) and the destination's orientation tag is rewritten with the source orientation, so
+     * that it displays upright. If the destination has no orientation entry to rewrite, the default mode is used.
+     */
+    public static void correctOrientation(File sourceFile, File destFile, boolean lossless) {
         int orientation = getOrientationFromExif(sourceFile);
-        if (orientation <= ORIENTATION_NORMAL) return;
+        if (orientation <= ORIENTATION_NORMAL || orientation > ORIENTATION_ROTATE_CCW) return;
 
         try {
-            Image image = ImageIO.read(sourceFile);
-
-            switch (orientation) {
-                case ORIENTATION_FLIP_HORIZONTAL:
-                    image = flip(image, AXIS_Y);
-                    break;
-                case ORIENTATION_FLIP_VERTICAL:
-                    image = flip(image, AXIS_X);
-                    break;
-                case ORIENTATION_ROTATE_CW:
-                    image = rotate(image, CW);
-                    break;
-                case ORIENTATION_ROTATE_CCW:
-                    image = rotate(image, CCW);
-                    break;
-                case ORIENTATION_ROTATE_180:
-                    image = rotate(image, DCW);
-                    break;
-                case ORIENTATION_FLIP_HORIZONTAL_ROTATE_CW:
-                    image = rotate(flip(image, AXIS_Y), CW);
-                    break;
-                default:
-                    image = rotate(flip(image, AXIS_X), CW);
-                    break;
+            if (lossless) {
+                if (!destFile.exists() || !Files.isSameFile(sourceFile.toPath(), destFile.toPath()))
+                    FileUtil.copyFile(sourceFile, destFile);
+                if (setExifOrientation(destFile, orientation)) return;
             }
 
-            ImageIO.write((RenderedImage) image, "jpg", destFile);
+            BufferedImage image = ImageIO.read(sourceFile);
+            ImageIO.write(Rasters.reorient(image, orientation), "jpg", destFile);
         } catch (IOException ex) {
             ex.printStackTrace();
         }
     }
 
+    public static boolean setExifOrientation(File jpegFile, int orientation) throws IOException {
+        if (orientation < ORIENTATION_NORMAL || orientation > ORIENTATION_ROTATE_CCW)
+            throw new IllegalArgumentException("Invalid EXIF orientation: " + orientation);
+
+        try (RandomAccessFile file = new RandomAccessFile(jpegFile, "rw")) {
+            if (file.readUnsignedShort() != 0xFFD8) return false;
+
+            while (true) {
+                int marker = file.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) return false;
+
+                int length = file.readUnsignedShort();
+                long segmentStart = file.getFilePointer();
+
+                if (marker == 0xFFE1 && length >= 16) {
+                    byte[] segment = new byte[length - 2];
+                    file.readFully(segment);
+
+                    int entry = findExifOrientationEntry(segment);
+                    if (entry >= 0) {
+                        boolean littleEndian = segment[6] == 'I';
+                        segment[entry + 8] = (byte) (littleEndian ? orientation : 0);
+                        segment[entry + 9] = (byte) (littleEndian ? 0 : orientation);
+                        file.seek(segmentStart + entry + 8);
+                        file.write(segment, entry + 8, 2);
+                        return true;
+                    }
+                }
+
+                file.seek(segmentStart + length - 2);
+            }
+        } catch (EOFException ex) {
+            return false;
+        }
+    }
+
+    private static int findExifOrientationEntry(byte[] segment) {
+        if (segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f'
+                || segment[4] != 0 || segment[5] != 0)
+            return -1;
+
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I')
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        else if (tiff.get(0) != 'M' || tiff.get(1) != 'M')
+            return -1;
+
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) return -1;
+
+        int count = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0, entry = ifd + 2; i < count && entry + 12 <= tiff.limit(); ++i, entry += 12) {
+            if ((tiff.getShort(entry) & 0xFFFF) == ExifDirectoryBase.TAG_ORIENTATION
+                    && tiff.getShort(entry + 2) == 3 && tiff.getInt(entry + 4) == 1)
+                return entry + 6;
+        }
+
+        return -1;
+    }
+
     public static String encodeBase64(File imageFile) throws IOException {
         byte[] fileBytes = FileUtil.readAllBytes(imageFile);
         String base64String = Base64.getEncoder().encodeToString(fileBytes);
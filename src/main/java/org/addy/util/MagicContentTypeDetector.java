@@ -0,0 +1,110 @@
+package org.addy.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public final class MagicContentTypeDetector implements ContentTypeDetector {
+	public static final int HEADER_SIZE = 16;
+
+	static final MagicContentTypeDetector INSTANCE = new MagicContentTypeDetector();
+
+	private MagicContentTypeDetector() {
+	}
+
+	@Override
+	public String detect(Path path, BasicFileAttributes attributes) throws IOException {
+		if (attributes != null ? !attributes.isRegularFile() : !Files.isRegularFile(path))
+			return null;
+
+		byte[] header;
+		try (InputStream input = Files.newInputStream(path)) {
+			header = input.readNBytes(HEADER_SIZE);
+		}
+
+		return detect(header, header.length);
+	}
+
+	public static String detect(byte[] header, int length) {
+		if (startsWith(header, length, 0, "\u00FF\u00D8\u00FF")) return "image/jpeg";
+		if (startsWith(header, length, 0, "\u0089PNG\r\n\u001A\n")) return "image/png";
+		if (startsWith(header, length, 0, "GIF87a") || startsWith(header, length, 0, "GIF89a")) return "image/gif";
+		if (startsWith(header, length, 0, "%PDF-")) return "application/pdf";
+		if (startsWith(header, length, 0, "PK\u0003\u0004") || startsWith(header, length, 0, "PK\u0005\u0006"))
+			return "application/zip";
+		if (startsWith(header, length, 0, "\u001F\u008B")) return "application/gzip";
+		if (startsWith(header, length, 0, "7z\u00BC\u00AF\u0027\u001C")) return "application/x-7z-compressed";
+		if (startsWith(header, length, 0, "Rar!")) return "application/vnd.rar";
+		if (startsWith(header, length, 0, "II*\u0000")) return "image/tiff";
+		if (startsWith(header, length, 0, "MM\u0000*")) return "image/tiff";
+		if (startsWith(header, length, 0, "\u0000\u0000\u0001\u0000")) return "image/x-icon";
+		if (startsWith(header, length, 0, "BM")) return "image/bmp";
+		if (startsWith(header, length, 0, "RIFF")) {
+			if (startsWith(header, length, 8, "WEBP")) return "image/webp";
+			if (startsWith(header, length, 8, "WAVE")) return "audio/wav";
+			if (startsWith(header, length, 8, "AVI ")) return "video/x-msvideo";
+		}
+		if (startsWith(header, length, 4, "ftyp")) return detectFileType(header, length);
+		if (startsWith(header, length, 0, "ID3") || startsWith(header, length, 0, "\u00FF\u00FB")) return "audio/mpeg";
+		if (startsWith(header, length, 0, "OggS")) return "application/ogg";
+		if (startsWith(header, length, 0, "fLaC")) return "audio/flac";
+		if (startsWith(header, length, 0, "\u001A\u0045\u00DF\u00A3")) return "video/webm";
+		if (startsWith(header, length, 0, "<?xml")) return "application/xml";
+		if (startsWith(header, length, 0, "%!PS")) return "application/postscript";
+		return null;
+	}
+
+	private static String detectFileType(byte[] header, int length) {
+		if (length < 12) return null;
+
+		String brand = new String(header, 8, 4, StandardCharsets.ISO_8859_1);
+		switch (brand) {
+			case "isom":
+			case "iso2":
+			case "iso4":
+			case "iso5":
+			case "iso6":
+			case "mp41":
+			case "mp42":
+			case "mmp4":
+			case "avc1":
+			case "dash":
+			case "M4V ":
+			case "M4VP":
+			case "f4v ":
+				return "video/mp4";
+			case "M4A ":
+			case "M4B ":
+				return "audio/mp4";
+			case "qt  ":
+				return "video/quicktime";
+			case "heic":
+			case "heix":
+			case "heim":
+			case "heis":
+			case "mif1":
+				return "image/heic";
+			case "avif":
+			case "avis":
+				return "image/avif";
+			default:
+				if (brand.startsWith("3g2")) return "video/3gpp2";
+				if (brand.startsWith("3g")) return "video/3gpp";
+				return null;
+		}
+	}
+
+	private static boolean startsWith(byte[] header, int length, int offset, String magic) {
+		if (offset + magic.length() > length) return false;
+
+		for (int i = 0; i < magic.length(); ++i) {
+			if ((header[offset + i] & 0xFF) != magic.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+}
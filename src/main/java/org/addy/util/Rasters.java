@@ -0,0 +1,331 @@
+package org.addy.util;
+
+import java.awt.color.ColorSpace;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+final class Rasters {
+    private static final int PARALLEL_THRESHOLD = 512 * 512;
+    private static final int ROWS_PER_BAND = 16;
+
+    private Rasters() {}
+
+    static void forEachBand(int width, int height, RowTask task) {
+        forEachBand((long) width * height, height, task);
+    }
+
+    static void forEachBand(long pixels, int height, RowTask task) {
+        int bands = pixels < PARALLEL_THRESHOLD ? 1
+                : Math.min(Math.max(1, height / ROWS_PER_BAND), 4 * ForkJoinPool.getCommonPoolParallelism());
+
+        if (bands <= 1) {
+            task.run(0, height);
+        } else {
+            IntStream.range(0, bands).parallel().forEach(band ->
+                    task.run((int) ((long) band * height / bands), (int) ((long) (band + 1) * height / bands)));
+        }
+    }
+
+    static BufferedImage createCompatible(BufferedImage image, int width, int height) {
+        ColorModel colorModel = image.getColorModel();
+        WritableRaster raster = image.getRaster().createCompatibleWritableRaster(width, height);
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+
+    static Layout layoutOf(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (dataBuffer.getNumBanks() != 1) return null;
+
+        int translateX = raster.getSampleModelTranslateX();
+        int translateY = raster.getSampleModelTranslateY();
+        int numBands = sampleModel.getNumBands();
+
+        if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel packed = (SinglePixelPackedSampleModel) sampleModel;
+            int[] masks = packed.getBitMasks();
+            int[] shifts = packed.getBitOffsets();
+            for (int i = 0; i < masks.length; ++i) {
+                if (masks[i] != 0xFF << shifts[i]) return null;
+            }
+
+            int stride = packed.getScanlineStride();
+            int offset = dataBuffer.getOffset() - translateY * stride - translateX;
+            return new Layout(((DataBufferInt) dataBuffer).getData(), null, offset, stride, 1, shifts, numBands);
+        }
+
+        if (dataBuffer instanceof DataBufferByte && sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel component = (ComponentSampleModel) sampleModel;
+            for (int bank : component.getBankIndices()) {
+                if (bank != 0) return null;
+            }
+            for (int size : component.getSampleSize()) {
+                if (size != 8) return null;
+            }
+
+            int stride = component.getScanlineStride();
+            int pixelStride = component.getPixelStride();
+            int offset = dataBuffer.getOffset() - translateY * stride - translateX * pixelStride;
+            return new Layout(null, ((DataBufferByte) dataBuffer).getData(), offset, stride, pixelStride,
+                    component.getBandOffsets(), numBands);
+        }
+
+        return null;
+    }
+
+    static boolean isRgb(BufferedImage image, Layout layout) {
+        ColorSpace colorSpace = image.getColorModel().getColorSpace();
+        return layout != null && (layout.numBands == 3 || layout.numBands == 4) && colorSpace.isCS_sRGB();
+    }
+
+    static boolean isGray(BufferedImage image, Layout layout) {
+        ColorSpace colorSpace = image.getColorModel().getColorSpace();
+        return layout != null && layout.bytes != null && layout.numBands == 1
+                && colorSpace.getType() == ColorSpace.TYPE_GRAY;
+    }
+
+    static int luma(int red, int green, int blue) {
+        return (19595 * red + 38470 * green + 7471 * blue + 32768) >> 16;
+    }
+
+    static void grayScaleInPlace(BufferedImage image) {
+        Layout layout = layoutOf(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (isGray(image, layout)) return;
+
+        if (!isRgb(image, layout)) {
+            forEachBand(width, height, (start, end) -> {
+                int[] row = new int[width];
+                for (int y = start; y < end; ++y) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    for (int x = 0; x < width; ++x) {
+                        int argb = row[x];
+                        int gray = luma((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF);
+                        row[x] = (argb & 0xFF000000) | (gray << 16) | (gray << 8) | gray;
+                    }
+                    image.setRGB(0, y, width, 1, row, 0, width);
+                }
+            });
+            return;
+        }
+
+        if (layout.ints != null) {
+            int[] data = layout.ints;
+            int redShift = layout.bandOffsets[0];
+            int greenShift = layout.bandOffsets[1];
+            int blueShift = layout.bandOffsets[2];
+            int rgbMask = (0xFF << redShift) | (0xFF << greenShift) | (0xFF << blueShift);
+
+            forEachBand(width, height, (start, end) -> {
+                for (int y = start; y < end; ++y) {
+                    for (int i = layout.index(0, y), last = i + width; i < last; ++i) {
+                        int pixel = data[i];
+                        int gray = luma((pixel >>> redShift) & 0xFF, (pixel >>> greenShift) & 0xFF,
+                                (pixel >>> blueShift) & 0xFF);
+                        data[i] = (pixel & ~rgbMask) | (gray << redShift) | (gray << greenShift) | (gray << blueShift);
+                    }
+                }
+            });
+        } else {
+            byte[] data = layout.bytes;
+            int red = layout.bandOffsets[0];
+            int green = layout.bandOffsets[1];
+            int blue = layout.bandOffsets[2];
+            int pixelStride = layout.pixelStride;
+
+            forEachBand(width, height, (start, end) -> {
+                for (int y = start; y < end; ++y) {
+                    for (int i = layout.index(0, y), last = i + width * pixelStride; i < last; i += pixelStride) {
+                        byte gray = (byte) luma(data[i + red] & 0xFF, data[i + green] & 0xFF, data[i + blue] & 0xFF);
+                        data[i + red] = gray;
+                        data[i + green] = gray;
+                        data[i + blue] = gray;
+                    }
+                }
+            });
+        }
+    }
+
+    static BufferedImage toByteGray(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage grayImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Layout target = layoutOf(grayImage);
+        byte[] out = target.bytes;
+        Layout layout = layoutOf(image);
+
+        if (isGray(image, layout)) {
+            byte[] data = layout.bytes;
+            forEachBand(width, height, (start, end) -> {
+                for (int y = start; y < end; ++y) {
+                    int i = layout.index(0, y);
+                    int o = target.index(0, y);
+                    for (int x = 0; x < width; ++x, i += layout.pixelStride)
+                        out[o + x] = data[i + layout.bandOffsets[0]];
+                }
+            });
+        } else if (isRgb(image, layout) && layout.ints != null) {
+            int[] data = layout.ints;
+            int redShift = layout.bandOffsets[0];
+            int greenShift = layout.bandOffsets[1];
+            int blueShift = layout.bandOffsets[2];
+
+            forEachBand(width, height, (start, end) -> {
+                for (int y = start; y < end; ++y) {
+                    int i = layout.index(0, y);
+                    int o = target.index(0, y);
+                    for (int x = 0; x < width; ++x) {
+                        int pixel = data[i + x];
+                        out[o + x] = (byte) luma((pixel >>> redShift) & 0xFF, (pixel >>> greenShift) & 0xFF,
+                                (pixel >>> blueShift) & 0xFF);
+                    }
+                }
+            });
+        } else if (isRgb(image, layout)) {
+            byte[] data = layout.bytes;
+            int red = layout.bandOffsets[0];
+            int green = layout.bandOffsets[1];
+            int blue = layout.bandOffsets[2];
+            int pixelStride = layout.pixelStride;
+
+            forEachBand(width, height, (start, end) -> {
+                for (int y = start; y < end; ++y) {
+                    int i = layout.index(0, y);
+                    int o = target.index(0, y);
+                    for (int x = 0; x < width; ++x, i += pixelStride)
+                        out[o + x] = (byte) luma(data[i + red] & 0xFF, data[i + green] & 0xFF, data[i + blue] & 0xFF);
+                }
+            });
+        } else {
+            forEachBand(width, height, (start, end) -> {
+                int[] row = new int[width];
+                for (int y = start; y < end; ++y) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    int o = target.index(0, y);
+                    for (int x = 0; x < width; ++x) {
+                        int argb = row[x];
+                        out[o + x] = (byte) luma((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF);
+                    }
+                }
+            });
+        }
+
+        return grayImage;
+    }
+
+    static BufferedImage reorient(BufferedImage image, int orientation) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean transposed = orientation >= 5 && orientation <= 8;
+        int targetWidth = transposed ? height : width;
+        int targetHeight = transposed ? width : height;
+        BufferedImage result = createCompatible(image, targetWidth, targetHeight);
+        Layout source = layoutOf(image);
+        Layout target = layoutOf(result);
+
+        if (source == null || target == null || source.pixelStride != target.pixelStride
+                || !Arrays.equals(source.bandOffsets, target.bandOffsets)) {
+            int[] m = sourceMapping(orientation, width, height, 0);
+            try {
+                AffineTransform transform = new AffineTransform(m[0], m[3], m[1], m[4], m[2], m[5]).createInverse();
+                new AffineTransformOp(transform, AffineTransformOp.TYPE_NEAREST_NEIGHBOR).filter(image, result);
+            } catch (NoninvertibleTransformException e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        }
+
+        int[] m = sourceMapping(orientation, width, height, 1);
+        int pixelStride = source.pixelStride;
+        int step = m[0] * pixelStride + m[3] * source.scanlineStride;
+
+        forEachBand(targetWidth, targetHeight, (start, end) -> {
+            for (int y = start; y < end; ++y) {
+                int i = source.index(m[1] * y + m[2], m[4] * y + m[5]);
+                int o = target.index(0, y);
+
+                if (step == pixelStride) {
+                    if (source.ints != null)
+                        System.arraycopy(source.ints, i, target.ints, o, targetWidth);
+                    else
+                        System.arraycopy(source.bytes, i, target.bytes, o, targetWidth * pixelStride);
+                } else if (source.ints != null) {
+                    int[] in = source.ints;
+                    int[] out = target.ints;
+                    for (int x = 0; x < targetWidth; ++x, i += step)
+                        out[o + x] = in[i];
+                } else {
+                    byte[] in = source.bytes;
+                    byte[] out = target.bytes;
+                    for (int x = 0; x < targetWidth; ++x, i += step) {
+                        for (int k = 0; k < pixelStride; ++k)
+                            out[o + x * pixelStride + k] = in[i + k];
+                    }
+                }
+            }
+        });
+
+        return result;
+    }
+
+    private static int[] sourceMapping(int orientation, int width, int height, int pixel) {
+        int right = width - pixel;
+        int bottom = height - pixel;
+
+        switch (orientation) {
+            case 2: return new int[] {-1, 0, right, 0, 1, 0};
+            case 3: return new int[] {-1, 0, right, 0, -1, bottom};
+            case 4: return new int[] {1, 0, 0, 0, -1, bottom};
+            case 5: return new int[] {0, 1, 0, 1, 0, 0};
+            case 6: return new int[] {0, 1, 0, -1, 0, bottom};
+            case 7: return new int[] {0, -1, right, -1, 0, bottom};
+            case 8: return new int[] {0, -1, right, 1, 0, 0};
+            default: return new int[] {1, 0, 0, 0, 1, 0};
+        }
+    }
+
+    @FunctionalInterface
+    interface RowTask {
+        void run(int startRow, int endRow);
+    }
+
+    static final class Layout {
+        final int[] ints;
+        final byte[] bytes;
+        final int offset;
+        final int scanlineStride;
+        final int pixelStride;
+        final int[] bandOffsets;
+        final int numBands;
+
+        Layout(int[] ints, byte[] bytes, int offset, int scanlineStride, int pixelStride, int[] bandOffsets,
+               int numBands) {
+            this.ints = ints;
+            this.bytes = bytes;
+            this.offset = offset;
+            this.scanlineStride = scanlineStride;
+            this.pixelStride = pixelStride;
+            this.bandOffsets = bandOffsets;
+            this.numBands = numBands;
+        }
+
+        int index(int x, int y) {
+            return offset + y * scanlineStride + x * pixelStride;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.addy.util;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+final class Resampler {
+    private Resampler() {}
+
+    static BufferedImage resize(BufferedImage image, int width, int height, int quality, int imageType) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid target size: " + width + "x" + height);
+
+        Filter filter;
+        switch (quality) {
+            case ImageHelper.QUALITY_FAST:
+                filter = Filter.TENT;
+                break;
+            case ImageHelper.QUALITY_HIGH:
+                filter = Filter.LANCZOS;
+                break;
+            default:
+                filter = Filter.CUBIC;
+                break;
+        }
+
+        BufferedImage source = image;
+        Rasters.Layout layout = Rasters.layoutOf(source);
+        if (!isSupported(source, layout)) {
+            source = convert(source, source.getColorModel().hasAlpha()
+                    ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            layout = Rasters.layoutOf(source);
+        }
+
+        BufferedImage result = imageType == BufferedImage.TYPE_CUSTOM
+                ? Rasters.createCompatible(image, width, height) : new BufferedImage(width, height, imageType);
+        Rasters.Layout target = Rasters.layoutOf(result);
+        boolean direct = isSupported(result, target) && colorBands(result) == colorBands(source);
+        BufferedImage output = direct ? result : Rasters.createCompatible(source, width, height);
+        if (!direct) target = Rasters.layoutOf(output);
+
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        int factorX = Math.max(1, (int) ((double) sourceWidth / width / filter.radius));
+        int factorY = Math.max(1, (int) ((double) sourceHeight / height / filter.radius));
+
+        int shrunkWidth = (sourceWidth + factorX - 1) / factorX;
+        int shrunkHeight = (sourceHeight + factorY - 1) / factorY;
+        Weights horizontal = weights(shrunkWidth, width, (double) sourceWidth / factorX / width, filter);
+        Weights vertical = weights(shrunkHeight, height, (double) sourceHeight / factorY / height, filter);
+        resample(source, layout, factorX, factorY, horizontal, vertical, output, target);
+
+        if (!direct) {
+            Graphics2D g = result.createGraphics();
+            g.drawImage(output, 0, 0, null);
+            g.dispose();
+        }
+
+        return result;
+    }
+
+    private static boolean isSupported(BufferedImage image, Rasters.Layout layout) {
+        return Rasters.isRgb(image, layout) || Rasters.isGray(image, layout);
+    }
+
+    private static int colorBands(BufferedImage image) {
+        return image.getColorModel().getNumColorComponents();
+    }
+
+    private static BufferedImage convert(BufferedImage image, int imageType) {
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+        Graphics2D g = converted.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return converted;
+    }
+
+    private static void resample(BufferedImage image, Rasters.Layout layout, int factorX, int factorY,
+                                 Weights horizontal, Weights vertical, BufferedImage output, Rasters.Layout target) {
+        int channels = layout.numBands;
+        boolean alpha = image.getColorModel().hasAlpha();
+        int shrunkLength = arraySize((image.getWidth() + factorX - 1) / factorX, channels);
+        int rowLength = arraySize(output.getWidth(), channels);
+        int capacity = vertical.stride;
+
+        Rasters.forEachBand((long) image.getWidth() * image.getHeight(), output.getHeight(), (start, end) -> {
+            float[] shrunk = new float[shrunkLength];
+            float[][] window = new float[capacity][rowLength];
+            float[] row = new float[rowLength];
+            int next = 0;
+
+            for (int y = start; y < end; ++y) {
+                int first = vertical.starts[y];
+                int last = first + vertical.counts[y];
+                for (next = Math.max(next, first); next < last; ++next) {
+                    shrinkRow(image, layout, next, factorX, factorY, shrunk);
+                    resampleRow(shrunk, window[next % capacity], horizontal, channels);
+                }
+
+                Arrays.fill(row, 0);
+                for (int r = first, w = y * vertical.stride; r < last; ++r, ++w) {
+                    float weight = vertical.values[w];
+                    float[] in = window[r % capacity];
+                    for (int i = 0; i < rowLength; ++i)
+                        row[i] += weight * in[i];
+                }
+
+                storeRow(row, y, channels, alpha, output, target);
+            }
+        });
+    }
+
+    private static void shrinkRow(BufferedImage image, Rasters.Layout layout, int y, int factorX, int factorY,
+                                  float[] data) {
+        int sourceWidth = image.getWidth();
+        int channels = layout.numBands;
+        int colors = image.getColorModel().getNumColorComponents();
+        boolean alpha = colors < channels;
+        boolean premultiply = alpha && !image.isAlphaPremultiplied();
+        int[] offsets = layout.bandOffsets;
+        int firstRow = y * factorY;
+        int lastRow = Math.min(image.getHeight(), firstRow + factorY);
+        Arrays.fill(data, 0);
+
+        for (int sy = firstRow; sy < lastRow; ++sy) {
+            int i = layout.index(0, sy);
+            for (int o = 0, x = 0; o < data.length; ++x, o += channels) {
+                for (int sx = x * factorX, last = Math.min(sourceWidth, sx + factorX); sx < last;
+                     ++sx, i += layout.pixelStride) {
+                    if (layout.ints != null) {
+                        int pixel = layout.ints[i];
+                        int a = alpha ? (pixel >>> offsets[colors]) & 0xFF : 255;
+                        int weight = premultiply ? a : 1;
+                        for (int k = 0; k < colors; ++k)
+                            data[o + k] += ((pixel >>> offsets[k]) & 0xFF) * weight;
+                        if (alpha) data[o + colors] += a;
+                    } else {
+                        byte[] bytes = layout.bytes;
+                        int a = alpha ? bytes[i + offsets[colors]] & 0xFF : 255;
+                        int weight = premultiply ? a : 1;
+                        for (int k = 0; k < colors; ++k)
+                            data[o + k] += (bytes[i + offsets[k]] & 0xFF) * weight;
+                        if (alpha) data[o + colors] += a;
+                    }
+                }
+            }
+        }
+
+        for (int o = 0, x = 0; o < data.length; ++x, o += channels) {
+            float count = (float) (Math.min(sourceWidth, (x + 1) * factorX) - x * factorX) * (lastRow - firstRow);
+            float scale = 1 / (premultiply ? 255 * count : count);
+            for (int k = 0; k < colors; ++k)
+                data[o + k] *= scale;
+            if (alpha) data[o + colors] /= count;
+        }
+    }
+
+    private static void resampleRow(float[] in, float[] out, Weights weights, int channels) {
+        for (int x = 0, o = 0; o < out.length; ++x, o += channels) {
+            int w = x * weights.stride;
+            int count = weights.counts[x];
+            int s = weights.starts[x] * channels;
+
+            for (int k = 0; k < channels; ++k) {
+                float sum = 0;
+                for (int t = 0, i = s + k; t < count; ++t, i += channels)
+                    sum += weights.values[w + t] * in[i];
+                out[o + k] = sum;
+            }
+        }
+    }
+
+    private static void storeRow(float[] row, int y, int channels, boolean sourceAlpha, BufferedImage image,
+                                 Rasters.Layout layout) {
+        int width = image.getWidth();
+        boolean targetAlpha = image.getColorModel().hasAlpha();
+        boolean unpremultiply = sourceAlpha && targetAlpha && !image.isAlphaPremultiplied();
+        int colors = sourceAlpha ? channels - 1 : channels;
+        int[] offsets = layout.bandOffsets;
+
+        for (int x = 0, p = 0, o = layout.index(0, y); x < width; ++x, p += channels, o += layout.pixelStride) {
+            int alpha = sourceAlpha ? clamp(row[p + colors]) : 255;
+            float scale = unpremultiply ? (alpha > 0 ? 255f / alpha : 0) : 1;
+
+            if (layout.ints != null) {
+                int value = targetAlpha ? alpha << offsets[colors] : 0;
+                for (int k = 0; k < colors; ++k)
+                    value |= clamp(row[p + k] * scale) << offsets[k];
+                layout.ints[o] = value;
+            } else {
+                byte[] out = layout.bytes;
+                for (int k = 0; k < colors; ++k)
+                    out[o + offsets[k]] = (byte) clamp(row[p + k] * scale);
+                if (targetAlpha) out[o + offsets[colors]] = (byte) alpha;
+            }
+        }
+    }
+
+    private static int arraySize(int count, int length) {
+        try {
+            return Math.multiplyExact(count, length);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Image is too large to resample: " + count + "x" + length, e);
+        }
+    }
+
+    private static int clamp(float value) {
+        int rounded = (int) (value + 0.5f);
+        return rounded < 0 ? 0 : Math.min(rounded, 255);
+    }
+
+    private static Weights weights(int sourceSize, int targetSize, double scale, Filter filter) {
+        double filterScale = Math.max(1, scale);
+        double support = filter.radius * filterScale;
+        int stride = 2 * (int) Math.ceil(support) + 2;
+        Weights weights = new Weights(targetSize, stride);
+
+        for (int i = 0; i < targetSize; ++i) {
+            double center = (i + 0.5) * scale;
+            int left = Math.min(sourceSize - 1, Math.max(0, (int) Math.floor(center - support)));
+            int right = Math.max(left + 1, Math.min(sourceSize, (int) Math.ceil(center + support)));
+            int w = i * stride;
+            double sum = 0;
+
+            for (int j = left; j < right; ++j) {
+                double value = filter.weight((j + 0.5 - center) / filterScale);
+                weights.values[w + j - left] = (float) value;
+                sum += value;
+            }
+
+            if (sum != 0) {
+                for (int j = 0; j < right - left; ++j)
+                    weights.values[w + j] /= sum;
+            } else {
+                weights.values[w] = 1;
+                right = left + 1;
+            }
+
+            weights.starts[i] = left;
+            weights.counts[i] = right - left;
+        }
+
+        return weights;
+    }
+
+    ///////////////// INNER CLASSES AND INTERFACES ///////////////////
+
+    private enum Filter {
+        TENT(1) {
+            @Override
+            double weight(double x) {
+                x = Math.abs(x);
+                return x < 1 ? 1 - x : 0;
+            }
+        },
+
+        CUBIC(2) {
+            @Override
+            double weight(double x) {
+                x = Math.abs(x);
+                if (x < 1) return (1.5 * x - 2.5) * x * x + 1;
+                if (x < 2) return ((-0.5 * x + 2.5) * x - 4) * x + 2;
+                return 0;
+            }
+        },
+
+        LANCZOS(3) {
+            @Override
+            double weight(double x) {
+                if (x == 0) return 1;
+                if (x <= -3 || x >= 3) return 0;
+
+                double px = Math.PI * x;
+                return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+            }
+        };
+
+        final int radius;
+
+        Filter(int radius) {
+            this.radius = radius;
+        }
+
+        abstract double weight(double x);
+    }
+
+    private static final class Weights {
+        final int[] starts;
+        final int[] counts;
+        final float[] values;
+        final int stride;
+
+        Weights(int size, int stride) {
+            this.starts = new int[size];
+            this.counts = new int[size];
+            this.values = new float[arraySize(size, stride)];
+            this.stride = stride;
+        }
+    }
+}
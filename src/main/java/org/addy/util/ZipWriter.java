@@ -0,0 +1,296 @@
+package org.addy.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+final class ZipWriter {
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int DATA_DESCRIPTOR = 0x08074b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int ZIP64_END = 0x06064b50;
+	private static final int ZIP64_LOCATOR = 0x07064b50;
+	private static final int END = 0x06054b50;
+	private static final int FLAG_DESCRIPTOR = 0x0008;
+	private static final int FLAG_UTF8 = 0x0800;
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+	private static final int VERSION = 20;
+	private static final int VERSION_ZIP64 = 45;
+	private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
+	private final CountingOutputStream out;
+	private final int level;
+	private final List<CentralEntry> entries = new ArrayList<>();
+
+	ZipWriter(OutputStream out, int level) {
+		this.out = new CountingOutputStream(new BufferedOutputStream(out, FileUtil.DEFAULT_BUFFER_SIZE));
+		this.level = level;
+	}
+
+	void writeDirectory(String name, long lastModified) throws IOException {
+		CentralEntry entry = new CentralEntry(name.endsWith("/") ? name : name + "/", lastModified, STORED, 0, out.count);
+		writeLocalHeader(entry);
+		entries.add(entry);
+	}
+
+	void writeDeflated(Compressed compressed) throws IOException {
+		CentralEntry entry = new CentralEntry(compressed.name, compressed.lastModified, DEFLATED, 0, out.count);
+		entry.crc = compressed.crc;
+		entry.size = compressed.size;
+		entry.compressedSize = compressed.data.size();
+		writeLocalHeader(entry);
+		compressed.data.writeTo(out);
+		entries.add(entry);
+	}
+
+	void writeStreamed(String name, long lastModified, Path file) throws IOException {
+		CentralEntry entry = new CentralEntry(name, lastModified, DEFLATED, FLAG_DESCRIPTOR, out.count);
+		writeLocalHeader(entry);
+
+		CRC32 crc = new CRC32();
+		Deflater deflater = new Deflater(level, true);
+		long start = out.count;
+
+		try (InputStream input = new CheckedInputStream(Files.newInputStream(file), crc)) {
+			DeflaterOutputStream deflaterOut = new DeflaterOutputStream(new NonClosingOutputStream(out), deflater,
+					FileUtil.DEFAULT_BUFFER_SIZE);
+			entry.size = FileUtil.copyStream(input, deflaterOut);
+			deflaterOut.finish();
+		} finally {
+			deflater.end();
+		}
+
+		entry.crc = crc.getValue();
+		entry.compressedSize = out.count - start;
+
+		writeInt(DATA_DESCRIPTOR);
+		writeInt(entry.crc);
+		if (entry.size >= ZIP64_LIMIT || entry.compressedSize >= ZIP64_LIMIT) {
+			writeLong(entry.compressedSize);
+			writeLong(entry.size);
+		} else {
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+		}
+		entries.add(entry);
+	}
+
+	void finish() throws IOException {
+		long centralStart = out.count;
+		for (CentralEntry entry : entries)
+			writeCentralHeader(entry);
+		long centralEnd = out.count;
+		long centralSize = centralEnd - centralStart;
+
+		boolean zip64 = entries.size() >= 0xFFFF || centralStart >= ZIP64_LIMIT || centralSize >= ZIP64_LIMIT;
+		if (zip64) {
+			writeInt(ZIP64_END);
+			writeLong(44);
+			writeShort(VERSION_ZIP64);
+			writeShort(VERSION_ZIP64);
+			writeInt(0);
+			writeInt(0);
+			writeLong(entries.size());
+			writeLong(entries.size());
+			writeLong(centralSize);
+			writeLong(centralStart);
+
+			writeInt(ZIP64_LOCATOR);
+			writeInt(0);
+			writeLong(centralEnd);
+			writeInt(1);
+		}
+
+		writeInt(END);
+		writeShort(0);
+		writeShort(0);
+		writeShort(Math.min(entries.size(), 0xFFFF));
+		writeShort(Math.min(entries.size(), 0xFFFF));
+		writeInt(Math.min(centralSize, ZIP64_LIMIT));
+		writeInt(Math.min(centralStart, ZIP64_LIMIT));
+		writeShort(0);
+		out.flush();
+	}
+
+	static Compressed compress(String name, long lastModified, Path file, int level) throws IOException {
+		CRC32 crc = new CRC32();
+		Deflater deflater = new Deflater(level, true);
+		ByteArrayOutputStream data = new ByteArrayOutputStream((int) Math.min(Files.size(file) / 2 + 64, Integer.MAX_VALUE));
+		long size;
+
+		try (InputStream input = new CheckedInputStream(Files.newInputStream(file), crc);
+			 DeflaterOutputStream deflaterOut = new DeflaterOutputStream(data, deflater, FileUtil.DEFAULT_BUFFER_SIZE)) {
+			size = FileUtil.copyStream(input, deflaterOut);
+			deflaterOut.finish();
+		} finally {
+			deflater.end();
+		}
+
+		return new Compressed(name, lastModified, crc.getValue(), size, data);
+	}
+
+	private void writeLocalHeader(CentralEntry entry) throws IOException {
+		byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+		boolean descriptor = (entry.flags & FLAG_DESCRIPTOR) != 0;
+
+		writeInt(LOCAL_HEADER);
+		writeShort(VERSION);
+		writeShort(entry.flags | FLAG_UTF8);
+		writeShort(entry.method);
+		writeInt(entry.dosTime);
+		writeInt(descriptor ? 0 : entry.crc);
+		writeInt(descriptor ? 0 : entry.compressedSize);
+		writeInt(descriptor ? 0 : entry.size);
+		writeShort(name.length);
+		writeShort(0);
+		out.write(name);
+	}
+
+	private void writeCentralHeader(CentralEntry entry) throws IOException {
+		byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+		boolean sizeZip64 = entry.size >= ZIP64_LIMIT || entry.compressedSize >= ZIP64_LIMIT;
+		boolean offsetZip64 = entry.offset >= ZIP64_LIMIT;
+		int extraLength = (sizeZip64 ? 16 : 0) + (offsetZip64 ? 8 : 0);
+
+		writeInt(CENTRAL_HEADER);
+		writeShort(VERSION_ZIP64);
+		writeShort(extraLength > 0 ? VERSION_ZIP64 : VERSION);
+		writeShort(entry.flags | FLAG_UTF8);
+		writeShort(entry.method);
+		writeInt(entry.dosTime);
+		writeInt(entry.crc);
+		writeInt(sizeZip64 ? ZIP64_LIMIT : entry.compressedSize);
+		writeInt(sizeZip64 ? ZIP64_LIMIT : entry.size);
+		writeShort(name.length);
+		writeShort(extraLength > 0 ? extraLength + 4 : 0);
+		writeShort(0);
+		writeShort(0);
+		writeShort(0);
+		writeInt(0);
+		writeInt(offsetZip64 ? ZIP64_LIMIT : entry.offset);
+		out.write(name);
+
+		if (extraLength > 0) {
+			writeShort(0x0001);
+			writeShort(extraLength);
+			if (sizeZip64) {
+				writeLong(entry.size);
+				writeLong(entry.compressedSize);
+			}
+			if (offsetZip64) writeLong(entry.offset);
+		}
+	}
+
+	private void writeShort(int value) throws IOException {
+		out.write(value & 0xFF);
+		out.write((value >>> 8) & 0xFF);
+	}
+
+	private void writeInt(long value) throws IOException {
+		writeShort((int) (value & 0xFFFF));
+		writeShort((int) ((value >>> 16) & 0xFFFF));
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value & 0xFFFFFFFFL);
+		writeInt(value >>> 32);
+	}
+
+	private static long toDosTime(long millis) {
+		LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+		if (time.getYear() < 1980) return (1 << 21) | (1 << 16);
+
+		return ((long) (time.getYear() - 1980) << 25) | ((long) time.getMonthValue() << 21)
+				| ((long) time.getDayOfMonth() << 16) | ((long) time.getHour() << 11)
+				| ((long) time.getMinute() << 5) | ((long) time.getSecond() >> 1);
+	}
+
+	///////////////// INNER CLASSES AND INTERFACES ///////////////////
+
+	static final class Compressed {
+		final String name;
+		final long lastModified;
+		final long crc;
+		final long size;
+		final ByteArrayOutputStream data;
+
+		Compressed(String name, long lastModified, long crc, long size, ByteArrayOutputStream data) {
+			this.name = name;
+			this.lastModified = lastModified;
+			this.crc = crc;
+			this.size = size;
+			this.data = data;
+		}
+	}
+
+	private static final class CentralEntry {
+		final String name;
+		final long dosTime;
+		final int method;
+		final int flags;
+		final long offset;
+		long crc;
+		long size;
+		long compressedSize;
+
+		CentralEntry(String name, long lastModified, int method, int flags, long offset) {
+			this.name = name;
+			this.dosTime = toDosTime(lastModified);
+			this.method = method;
+			this.flags = flags;
+			this.offset = offset;
+		}
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+		long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			++count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	private static final class NonClosingOutputStream extends FilterOutputStream {
+		NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package org.addy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncFileUtilTest {
+	private static final File pdfFile = new File("files/dummy-document.pdf");
+
+	@Test
+	void readAllBytesWorks() throws IOException {
+		byte[] bytes = FileUtil.async().readAllBytes(pdfFile).join();
+		assertArrayEquals(FileUtil.readAllBytes(pdfFile), bytes);
+	}
+
+	@Test
+	void writeAndReadTextWorks() throws IOException {
+		File file = File.createTempFile("async", ".txt");
+		try {
+			FileUtil.async().writeAllBytes(file, "Élève\r\n".getBytes(StandardCharsets.UTF_8), false).join();
+			FileUtil.async().writeAllBytes(file, "Noël".getBytes(StandardCharsets.UTF_8), true).join();
+			assertEquals("Élève\r\nNoël", FileUtil.async().readAllText(file, StandardCharsets.UTF_8).join());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void copyWorks() throws IOException {
+		File dest = File.createTempFile("async", ".pdf");
+		try {
+			assertEquals(pdfFile.length(), FileUtil.async().copy(pdfFile, dest).join());
+			assertArrayEquals(FileUtil.readAllBytes(pdfFile), FileUtil.readAllBytes(dest));
+		} finally {
+			dest.delete();
+		}
+	}
+
+	@Test
+	void missingFileFails() {
+		assertThrows(CompletionException.class, () -> FileUtil.async().readAllBytes(new File("files/missing.bin")).join());
+	}
+}
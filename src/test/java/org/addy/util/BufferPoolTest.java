@@ -0,0 +1,96 @@
+package org.addy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferPoolTest {
+	@Test
+	void heapBuffersAreSizeClassedAndReused() {
+		byte[] buffer = BufferPool.acquire(5000);
+		assertEquals(8192, buffer.length);
+		assertNotSame(buffer, BufferPool.acquire(5000));
+
+		BufferPool.release(buffer);
+		assertSame(buffer, BufferPool.acquire(8000));
+		assertEquals(BufferPool.MAX_SIZE + 1, BufferPool.acquire(BufferPool.MAX_SIZE + 1).length);
+	}
+
+	@Test
+	void directBuffersAreClearedOnReuse() {
+		ByteBuffer buffer = BufferPool.acquireDirect(100);
+		assertTrue(buffer.isDirect());
+		assertEquals(BufferPool.MIN_SIZE, buffer.capacity());
+
+		buffer.put((byte) 1).limit(10);
+		BufferPool.release(buffer);
+
+		ByteBuffer reused = BufferPool.acquireDirect(BufferPool.MIN_SIZE);
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+		assertEquals(BufferPool.MIN_SIZE, reused.limit());
+	}
+
+	@Test
+	void charBuffersAreSizeClassedAndReused() {
+		char[] buffer = BufferPool.acquireChars(5000);
+		assertEquals(8192, buffer.length);
+
+		BufferPool.release(buffer);
+		assertSame(buffer, BufferPool.acquireChars(8192));
+		BufferPool.release(new char[5000]);
+		assertNotSame(buffer, BufferPool.acquireChars(8192));
+	}
+
+	@Test
+	void readAllLinesSpansPooledChunks() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; text.length() < 3 * FileUtil.DEFAULT_BUFFER_SIZE; ++i)
+			text.append(i).append(i % 3 == 0 ? "é\r\n" : i % 3 == 1 ? "€\r" : "\n\n");
+		text.append("last");
+		byte[] data = text.toString().getBytes(Charset.defaultCharset());
+
+		List<String> expected;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data)))) {
+			expected = reader.lines().collect(Collectors.toList());
+		}
+
+		assertEquals(expected, Arrays.asList(FileUtil.readAllLines(new ByteArrayInputStream(data))));
+		assertEquals(String.join(String.format("%n"), expected), FileUtil.readAllText(new ByteArrayInputStream(data)));
+		assertEquals(0, FileUtil.readAllLines(new ByteArrayInputStream(new byte[0])).length);
+	}
+
+	@Test
+	void readAllBytesSpansPooledChunks() throws IOException {
+		byte[] data = new byte[3 * FileUtil.DEFAULT_BUFFER_SIZE + 17];
+		for (int i = 0; i < data.length; ++i) data[i] = (byte) i;
+
+		assertArrayEquals(data, FileUtil.readAllBytes(new ByteArrayInputStream(data)));
+		assertArrayEquals(new byte[0], FileUtil.readAllBytes(new ByteArrayInputStream(new byte[0])));
+
+		File file = File.createTempFile("pool", ".bin");
+		try {
+			Files.write(file.toPath(), data);
+			assertArrayEquals(data, FileUtil.readAllBytes(file));
+			assertArrayEquals(data, FileUtil.readAllBytes(file.getPath()));
+		} finally {
+			file.delete();
+		}
+	}
+}
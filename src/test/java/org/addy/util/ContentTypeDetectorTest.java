@@ -0,0 +1,84 @@
+package org.addy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContentTypeDetectorTest {
+	private static final Path jpegFile = Path.of("files/image-from-pexels.jpg");
+	private static final Path pngFile = Path.of("files/image-from-internet.png");
+	private static final Path pdfFile = Path.of("files/dummy-document.pdf");
+
+	@Test
+	void magicDetectorSniffsHeaders() throws IOException {
+		ContentTypeDetector detector = ContentTypeDetector.magic();
+		assertEquals("image/jpeg", detector.detect(jpegFile, null));
+		assertEquals("image/png", detector.detect(pngFile, null));
+		assertEquals("application/pdf", detector.detect(pdfFile, null));
+		assertNull(detector.detect(Path.of("files"), null));
+
+		byte[] mp4 = {0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+		assertEquals("video/mp4", MagicContentTypeDetector.detect(mp4, mp4.length));
+		byte[] zip = {'P', 'K', 3, 4};
+		assertEquals("application/zip", MagicContentTypeDetector.detect(zip, zip.length));
+		assertNull(MagicContentTypeDetector.detect(zip, 2));
+	}
+
+	@Test
+	void magicDetectorReadsFileTypeBrand() {
+		assertEquals("video/mp4", detectFileType("mp42"));
+		assertEquals("video/quicktime", detectFileType("qt  "));
+		assertEquals("audio/mp4", detectFileType("M4A "));
+		assertEquals("image/heic", detectFileType("heic"));
+		assertEquals("image/heic", detectFileType("mif1"));
+		assertEquals("image/avif", detectFileType("avif"));
+		assertEquals("video/3gpp", detectFileType("3gp5"));
+		assertEquals("video/3gpp2", detectFileType("3g2a"));
+		assertNull(detectFileType("crx "));
+
+		byte[] truncated = {0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'a', 'v'};
+		assertNull(MagicContentTypeDetector.detect(truncated, truncated.length));
+	}
+
+	private static String detectFileType(String brand) {
+		byte[] header = ("\u0000\u0000\u0000\u0018ftyp" + brand).getBytes(StandardCharsets.ISO_8859_1);
+		return MagicContentTypeDetector.detect(header, header.length);
+	}
+
+	@Test
+	void extensionDetectorCachesByExtension() throws IOException {
+		AtomicInteger calls = new AtomicInteger();
+		ContentTypeDetector detector = ContentTypeDetector.byExtension((path, attributes) -> {
+			calls.incrementAndGet();
+			return "image/jpeg";
+		}, 16);
+
+		assertEquals("image/jpeg", detector.detect(Path.of("a.jpg"), null));
+		assertEquals("image/jpeg", detector.detect(Path.of("b.JPG"), null));
+		assertNull(detector.detect(Path.of("noextension"), null));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void cachedDetectorInvalidatesOnChange() throws IOException {
+		File file = File.createTempFile("sniff", ".bin");
+		try {
+			ContentTypeDetector detector = ContentTypeDetector.cached(ContentTypeDetector.magic(), 16);
+			Files.write(file.toPath(), new byte[] {'%', 'P', 'D', 'F', '-'});
+			assertEquals("application/pdf", detector.detect(file.toPath(), null));
+
+			Files.write(file.toPath(), new byte[] {'G', 'I', 'F', '8', '9', 'a', 0});
+			assertEquals("image/gif", detector.detect(file.toPath(), null));
+		} finally {
+			file.delete();
+		}
+	}
+}
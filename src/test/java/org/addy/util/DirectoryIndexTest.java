@@ -0,0 +1,59 @@
+package org.addy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryIndexTest {
+	private static final File pdfFile = new File("files/dummy-document.pdf");
+
+	@Test
+	void buildAndQueryWorks() throws IOException {
+		DirectoryIndex index = DirectoryIndex.build(Path.of("files"));
+		assertEquals(10, index.getFileCount());
+		assertEquals(8, index.findByExtension(".jpg", ".jpeg").size());
+		assertEquals(9, index.findByContentType("image/*").size());
+
+		List<DirectoryIndex.Entry> pdfs = index.findByContentType("application/pdf");
+		assertEquals(1, pdfs.size());
+		assertEquals(pdfFile.getAbsoluteFile().toPath(), pdfs.get(0).getPath());
+		assertEquals(pdfFile.length(), pdfs.get(0).getSize());
+	}
+
+	@Test
+	void saveLoadAndRefreshWorks() throws IOException {
+		Path root = Files.createTempDirectory("index");
+		Path indexFile = Files.createTempFile("index", ".idx");
+		try {
+			Files.createDirectories(root.resolve("a/b"));
+			Files.createDirectories(root.resolve("c"));
+			Files.copy(pdfFile.toPath(), root.resolve("a/b/doc.pdf"));
+			Files.write(root.resolve("c/notes.txt"), "notes".getBytes());
+
+			DirectoryIndex.build(root).save(indexFile);
+			DirectoryIndex index = DirectoryIndex.load(indexFile);
+			assertEquals(2, index.getFileCount());
+			assertEquals(1, index.findByContentType("application/pdf").size());
+
+			assertEquals(0, index.refresh());
+
+			Files.write(root.resolve("a/b/more.txt"), "more".getBytes());
+			FileUtil.deleteTree(root.resolve("c").toFile());
+			assertTrue(index.refresh() >= 1);
+			assertEquals(2, index.getFileCount());
+			assertEquals(List.of(root.toAbsolutePath().resolve("a/b/more.txt")),
+					index.findByExtension(".txt").stream().map(DirectoryIndex.Entry::getPath).collect(Collectors.toList()));
+		} finally {
+			FileUtil.deleteTree(root.toFile());
+			Files.deleteIfExists(indexFile);
+		}
+	}
+}
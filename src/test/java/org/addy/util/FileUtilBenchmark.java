@@ -0,0 +1,68 @@
+package org.addy.util;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FileUtilBenchmark {
+	@ParameterizedTest
+	@ValueSource(longs = {1L << 20, 100L << 20, 4L << 30})
+	void compareCopyEngines(long size) throws IOException {
+		File source = File.createTempFile("bench-source", ".bin");
+		File legacyDest = File.createTempFile("bench-legacy", ".bin");
+		File channelDest = File.createTempFile("bench-channel", ".bin");
+
+		try {
+			fill(source, size);
+
+			long start = System.nanoTime();
+			legacyCopy(source, legacyDest);
+			long legacyTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			FileUtil.copyFile(source, channelDest);
+			long channelTime = System.nanoTime() - start;
+
+			assertEquals(size, legacyDest.length());
+			assertEquals(size, channelDest.length());
+			System.out.printf("%,d bytes: legacy %d ms, channel %d ms%n",
+					size, legacyTime / 1_000_000, channelTime / 1_000_000);
+		} finally {
+			source.delete();
+			legacyDest.delete();
+			channelDest.delete();
+		}
+	}
+
+	private static void fill(File file, long size) throws IOException {
+		byte[] block = new byte[1 << 20];
+		ThreadLocalRandom.current().nextBytes(block);
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			for (long written = 0; written < size; written += block.length)
+				raf.write(block, 0, (int) Math.min(block.length, size - written));
+		}
+	}
+
+	private static void legacyCopy(File source, File dest) throws IOException {
+		try (InputStream input = new FileInputStream(source);
+			 OutputStream output = new FileOutputStream(dest)) {
+			byte[] buffer = new byte[1024];
+			int amount;
+			while ((amount = input.read(buffer)) > 0)
+				output.write(buffer, 0, amount);
+		}
+	}
+}
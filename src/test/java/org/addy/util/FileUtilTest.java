@@ -2,15 +2,47 @@ package org.addy.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileUtilTest {
@@ -93,6 +125,26 @@ class FileUtilTest {
 		assertTrue(FileUtil.isFile(file2.getPath()));
 	}
 
+	@Test
+	void movingWithProgressWorks() throws IOException {
+		Path dir = Files.createTempDirectory("move");
+		try {
+			Path source = dir.resolve("source.pdf");
+			Path dest = dir.resolve("dest.pdf");
+			Files.copy(file4.toPath(), source);
+
+			assertTrue(FileUtil.move(source, dest, (transferred, total) -> true));
+			assertFalse(Files.exists(source));
+			assertEquals(file4.length(), Files.size(dest));
+
+			File copy = dir.resolve("copy.pdf").toFile();
+			assertEquals(-1, FileUtil.copyFile(dest.toFile(), copy, (transferred, total) -> false));
+			assertFalse(copy.exists());
+		} finally {
+			FileUtil.deleteTree(dir.toFile());
+		}
+	}
+
 	@Test
 	void copyingAndDeletingFilesWorks() throws IOException {
 		String source = file4.getPath();
@@ -126,6 +178,109 @@ class FileUtilTest {
 		assertTrue(FileUtil.exists(source));
 	}
 
+	@Test
+	void copyingAndDeletingTreesWorks() {
+		String dest = FileUtil.combine(FileUtil.getTempDir(), "file-tree-copies");
+		assertFalse(FileUtil.exists(dest));
+
+		FileUtil.TreeResult copied = FileUtil.copyTree(file3.getPath(), dest);
+		assertTrue(copied.isSuccessful());
+		assertEquals(10, copied.getFileCount());
+		assertTrue(FileUtil.isFile(FileUtil.combine(dest, FileUtil.getFileName(file2.getPath()))));
+		assertEquals(file4.length(), new File(dest, file4.getName()).length());
+
+		FileUtil.TreeResult deleted = FileUtil.deleteTree(dest);
+		assertTrue(deleted.isSuccessful());
+		assertEquals(10, deleted.getFileCount());
+		assertEquals(copied.getByteCount(), deleted.getByteCount());
+		assertFalse(FileUtil.exists(dest));
+		assertTrue(FileUtil.exists(file2.getPath()));
+	}
+
+	@Test
+	void copyStreamCountsBytes() throws IOException {
+		byte[] data = new byte[3 * FileUtil.DEFAULT_BUFFER_SIZE + 17];
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		assertEquals(data.length, FileUtil.copyStream(new ByteArrayInputStream(data), output));
+		assertEquals(data.length, output.size());
+		assertEquals(data.length, FileUtil.copyStream(new ByteArrayInputStream(data), new ByteArrayOutputStream(), 100));
+	}
+
+	@Test
+	void throttledCopyStreamReportsProgress() throws IOException {
+		byte[] data = new byte[300 * 1024];
+		List<long[]> reports = new ArrayList<>();
+		FileUtil.ProgressListener listener = new FileUtil.ProgressListener() {
+			@Override
+			public boolean onProgress(long transferred, long total) {
+				return true;
+			}
+
+			@Override
+			public boolean onProgress(long transferred, long total, long bytesPerSecond) {
+				reports.add(new long[] {transferred, total, bytesPerSecond});
+				return true;
+			}
+		};
+
+		long start = System.nanoTime();
+		FileUtil.CopyOptions options = new FileUtil.CopyOptions()
+				.listener(listener)
+				.bandwidthLimit(1024 * 1024)
+				.expectedSize(data.length);
+		assertEquals(data.length, FileUtil.copyStream(new ByteArrayInputStream(data), new ByteArrayOutputStream(), options));
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertTrue(elapsedMillis >= 150, "elapsed " + elapsedMillis + " ms");
+		assertTrue(reports.size() > 1);
+		long[] last = reports.get(reports.size() - 1);
+		assertEquals(data.length, last[0]);
+		assertEquals(data.length, last[1]);
+		assertTrue(last[2] > 0 && last[2] < 2 * 1024 * 1024, "throughput " + last[2]);
+
+		options = new FileUtil.CopyOptions().listener((transferred, total) -> transferred < 100_000).bufferSize(4096);
+		assertEquals(-1, FileUtil.copyStream(new ByteArrayInputStream(data), new ByteArrayOutputStream(), options));
+	}
+
+	@Test
+	void copyWithOptionsReportsTreeProgress() throws IOException {
+		Path dir = Files.createTempDirectory("copy");
+		try {
+			Path source = Files.createDirectories(dir.resolve("source/sub"));
+			Files.write(source.resolve("a.bin"), new byte[1000]);
+			Files.write(source.getParent().resolve("b.bin"), new byte[500]);
+
+			long[] last = new long[2];
+			FileUtil.CopyOptions options = new FileUtil.CopyOptions().listener((transferred, total) -> {
+				last[0] = transferred;
+				last[1] = total;
+				return true;
+			});
+			assertTrue(FileUtil.copy(source.getParent().toFile(), dir.resolve("dest").toFile(), options));
+			assertEquals(1500, last[0]);
+			assertEquals(1500, last[1]);
+			assertEquals(1000, Files.size(dir.resolve("dest/sub/a.bin")));
+
+			options.bandwidthLimit(64 * 1024);
+			assertTrue(FileUtil.move(dir.resolve("dest"), dir.resolve("moved"), options));
+			assertEquals(500, Files.size(dir.resolve("moved/b.bin")));
+		} finally {
+			FileUtil.deleteTree(dir.toFile());
+		}
+	}
+
+	@Test
+	void copyFileTransfersWholeFile() throws IOException {
+		File dest = File.createTempFile("copy", ".pdf");
+		try {
+			assertEquals(file4.length(), FileUtil.copyFile(file4, dest));
+			assertArrayEquals(FileUtil.readAllBytes(file4), FileUtil.readAllBytes(dest));
+		} finally {
+			dest.delete();
+		}
+	}
+
 	@Test
 	void walkTreeWorks() {
 		List<String> fileList = new LinkedList<>();
@@ -135,6 +290,392 @@ class FileUtilTest {
 		assertTrue(fileList.contains(file4.getPath()));
 	}
 
+	@Test
+	void walkTreeWithAttributesWorks() throws IOException {
+		List<String> fileList = new LinkedList<>();
+		FileUtil.walkTree(file3.toPath(), new FileUtil.ExtensionFilter(".jpg"), new FileUtil.TreeWalker() {
+			@Override
+			public void onLeaf(File node) {
+			}
+
+			@Override
+			public void onLeaf(Path node, BasicFileAttributes attributes) {
+				assertTrue(attributes.isRegularFile());
+				fileList.add(node.toString());
+			}
+		});
+		assertEquals(8, fileList.size());
+		assertTrue(fileList.contains(file1.getPath()));
+		assertFalse(fileList.contains(file4.getPath()));
+	}
+
+	@Test
+	void parallelWalkTreeWorks() throws IOException {
+		List<String> fileList = Collections.synchronizedList(new ArrayList<>());
+		Set<String> exited = ConcurrentHashMap.newKeySet();
+		FileUtil.walkTree(file3.toPath(), file -> true, new FileUtil.TreeWalker() {
+			@Override
+			public void onLeaf(File node) {
+				fileList.add(node.getPath());
+			}
+
+			@Override
+			public void afterExitingDirectory(Path node) {
+				exited.add(node.toString());
+			}
+		}, 4);
+		assertEquals(10, fileList.size());
+		assertTrue(fileList.contains(file4.getPath()));
+		assertEquals(Set.of(file3.getPath()), exited);
+	}
+
+	@Test
+	void walkTreeReportsFailures() throws IOException {
+		Path root = Files.createTempDirectory("walk");
+		try {
+			for (String name : List.of("a", "b", "c")) {
+				Files.createDirectory(root.resolve(name));
+				Files.writeString(root.resolve(name).resolve("file.txt"), name);
+			}
+
+			List<Path> leaves = Collections.synchronizedList(new ArrayList<>());
+			List<Path> failures = Collections.synchronizedList(new ArrayList<>());
+			FileUtil.TreeWalker walker = new FileUtil.TreeWalker() {
+				@Override
+				public void onLeaf(File node) {
+					leaves.add(node.toPath());
+				}
+
+				@Override
+				public boolean beforeEnteringDirectory(Path node, BasicFileAttributes attributes) {
+					if (node.endsWith("b")) FileUtil.deleteTree(node.toFile());
+					return true;
+				}
+
+				@Override
+				public void onFailure(Path node, IOException e) {
+					failures.add(node);
+				}
+			};
+
+			FileUtil.walkTree(root, file -> true, walker, 4);
+			assertEquals(Set.of(root.resolve("a/file.txt"), root.resolve("c/file.txt")), new HashSet<>(leaves));
+			assertEquals(List.of(root.resolve("b")), failures);
+
+			failures.clear();
+			FileUtil.walkTree(root.resolve("b"), file -> true, walker);
+			FileUtil.walkTree(root.resolve("b"), file -> true, walker, 4);
+			assertEquals(List.of(root.resolve("b"), root.resolve("b")), failures);
+		} finally {
+			FileUtil.deleteTree(root.toFile());
+		}
+	}
+
+	@Test
+	void streamWorks() throws IOException {
+		try (Stream<Path> paths = FileUtil.stream(file3, new FileUtil.ExtensionFilter(".jpg"))) {
+			assertEquals(3, paths.limit(3).count());
+		}
+
+		try (Stream<Path> paths = FileUtil.stream(file3, new FileUtil.ContentTypeFilter("application/pdf"))) {
+			assertEquals(List.of(file4.toPath()), paths.collect(Collectors.toList()));
+		}
+
+		try (Stream<Path> paths = FileUtil.stream(file3.getPath(), file -> true)) {
+			assertEquals(10, paths.parallel().count());
+		}
+
+		Path dir = Files.createTempDirectory("stream");
+		try {
+			for (int i = 0; i < 8; ++i) {
+				Path subDir = Files.createDirectory(dir.resolve("dir" + i));
+				for (int j = 0; j < 20; ++j)
+					Files.createFile(subDir.resolve("file" + j));
+			}
+			Files.createFile(dir.resolve("root"));
+
+			try (Stream<Path> paths = FileUtil.stream(dir, file -> true)) {
+				Spliterator<Path> spliterator = paths.spliterator();
+				Spliterator<Path> split = spliterator.trySplit();
+				assertNotNull(split);
+
+				Set<Path> files = new HashSet<>();
+				spliterator.forEachRemaining(files::add);
+				split.forEachRemaining(files::add);
+				assertEquals(8 * 20 + 1, files.size());
+			}
+
+			try (Stream<Path> paths = FileUtil.stream(dir, file -> true)) {
+				assertEquals(8 * 20 + 1, paths.parallel().count());
+			}
+		} finally {
+			FileUtil.deleteTree(dir.toFile());
+		}
+	}
+
+	@Test
+	void eachMappedLineWorks() throws IOException {
+		File file = File.createTempFile("lines", ".txt");
+		try {
+			Files.writeString(file.toPath(), "first\r\nÉlève à Noël\n\nlast", StandardCharsets.UTF_8);
+
+			List<String> lines = new ArrayList<>();
+			List<Long> offsets = new ArrayList<>();
+			FileUtil.eachLine(file.toPath(), StandardCharsets.UTF_8, line -> {
+				lines.add(line.toString());
+				offsets.add(line.getOffset());
+			});
+			assertEquals(List.of("first", "Élève à Noël", "", "last"), lines);
+			assertEquals(List.of(0L, 7L, 24L, 25L), offsets);
+
+			List<Integer> lengths = new ArrayList<>();
+			FileUtil.eachLine(file, StandardCharsets.ISO_8859_1, line -> lengths.add(line.length()));
+			assertEquals(List.of(5, 16, 0, 4), lengths);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void parallelEachLineWorks() throws IOException {
+		File file = File.createTempFile("lines", ".csv");
+		try {
+			String[] expected = IntStream.range(0, 10_000).mapToObj(i -> i + ";item-" + i).toArray(String[]::new);
+			FileUtil.writeAllLines(file, expected, false);
+
+			LongAdder count = new LongAdder();
+			FileUtil.eachLine(file.toPath(), StandardCharsets.UTF_8, line -> count.increment(), 4);
+			assertEquals(expected.length, count.sum());
+
+			List<String> lines = new ArrayList<>();
+			FileUtil.eachLine(file.toPath(), StandardCharsets.UTF_8, CharSequence::toString, lines::add, 4);
+			assertArrayEquals(expected, lines.toArray());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void parallelEachLineStopsOnFailure() throws IOException, InterruptedException {
+		File file = File.createTempFile("lines", ".txt");
+		try {
+			byte[] line = "0123456789012345678901234567890123456789\n".getBytes(StandardCharsets.US_ASCII);
+			try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+				for (int i = 0; i < 1_000_000; ++i)
+					output.write(line);
+			}
+
+			LongAdder count = new LongAdder();
+			assertThrows(IllegalStateException.class, () -> FileUtil.eachLine(file.toPath(), StandardCharsets.UTF_8, l -> {
+				count.increment();
+				if (l.getOffset() == 0) throw new IllegalStateException("boom");
+			}, 4));
+
+			long seen = count.sum();
+			Thread.sleep(200);
+			assertEquals(seen, count.sum());
+			assertTrue(seen < 1_000_000);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void charsetAwareTextIoWorks() throws IOException {
+		File file = File.createTempFile("text", ".txt");
+		try {
+			String text = "Élève\r\nà Noël\nfin";
+			FileUtil.writeAllText(file, text, StandardCharsets.ISO_8859_1, false);
+			assertEquals(text.length(), file.length());
+			assertEquals(text, FileUtil.readAllText(file, StandardCharsets.ISO_8859_1));
+
+			FileUtil.writeAllLines(file.getPath(), new String[] {"Élève", "à Noël"}, StandardCharsets.UTF_8, false);
+			assertEquals("Élève" + System.lineSeparator() + "à Noël", FileUtil.readAllText(file.getPath(), StandardCharsets.UTF_8));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void hashWorks() throws IOException {
+		File file = File.createTempFile("hash", ".txt");
+		try {
+			FileUtil.writeAllText(file, "abc", StandardCharsets.US_ASCII, false);
+			assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", FileUtil.hash(file, "SHA-256"));
+			assertEquals("900150983cd24fb0d6963f7d28e17f72", FileUtil.hash(file.toPath(), "MD5"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void findDuplicatesWorks() throws IOException {
+		Path root = Files.createTempDirectory("duplicates");
+		try {
+			byte[] bytes = FileUtil.readAllBytes(file4);
+			byte[] altered = bytes.clone();
+			altered[altered.length - 1] ^= 1;
+
+			Files.write(root.resolve("a.pdf"), bytes);
+			Files.createDirectories(root.resolve("sub"));
+			Files.write(root.resolve("sub/b.pdf"), bytes);
+			Files.write(root.resolve("c.pdf"), altered);
+			Files.write(root.resolve("d.txt"), "same".getBytes());
+			Files.write(root.resolve("sub/e.txt"), "same".getBytes());
+
+			List<List<Path>> duplicates = FileUtil.findDuplicates(root, new FileUtil.ExtensionFilter(".pdf"));
+			assertEquals(1, duplicates.size());
+			assertEquals(Set.of(root.resolve("a.pdf"), root.resolve("sub/b.pdf")), Set.copyOf(duplicates.get(0)));
+
+			assertEquals(2, FileUtil.findDuplicates(root.toString(), file -> true).size());
+		} finally {
+			FileUtil.deleteTree(root.toFile());
+		}
+	}
+
+	@Test
+	void syncWorks() throws IOException {
+		Path dest = Files.createTempDirectory("sync");
+		try {
+			Files.createDirectories(dest.resolve("obsolete"));
+			Files.write(dest.resolve("obsolete/old.txt"), "old".getBytes());
+			Files.write(dest.resolve("stale.txt"), "stale".getBytes());
+
+			FileUtil.SyncOptions options = new FileUtil.SyncOptions().deleteExtraneous(true);
+			FileUtil.SyncResult preview = FileUtil.sync(file3.toPath(), dest,
+					new FileUtil.SyncOptions().deleteExtraneous(true).dryRun(true));
+			assertEquals(10, preview.getCopied().size());
+			assertEquals(2, preview.getDeleted().size());
+			assertFalse(Files.exists(dest.resolve(file4.getName())));
+
+			FileUtil.SyncResult first = FileUtil.sync(file3.toPath(), dest, options);
+			assertTrue(first.isSuccessful());
+			assertEquals(10, first.getCopied().size());
+			assertEquals(2, first.getDeleted().size());
+			assertFalse(Files.exists(dest.resolve("obsolete")));
+			assertEquals(file4.length(), Files.size(dest.resolve(file4.getName())));
+
+			FileUtil.SyncResult second = FileUtil.sync(file3.toPath(), dest, options.compareContent(true));
+			assertTrue(second.getCopied().isEmpty());
+			assertEquals(10, second.getUnchangedCount());
+		} finally {
+			FileUtil.deleteTree(dest.toFile());
+		}
+	}
+
+	@Test
+	void syncSkipsUncreatableDirectories() throws IOException {
+		Path source = Files.createTempDirectory("sync");
+		Path dest = Files.createTempDirectory("sync");
+		try {
+			Files.createDirectories(source.resolve("blocked"));
+			Files.write(source.resolve("blocked/inner.txt"), "inner".getBytes());
+			Files.write(source.resolve("other.txt"), "other".getBytes());
+			Files.write(dest.resolve("blocked"), "file".getBytes());
+
+			FileUtil.SyncResult result = FileUtil.sync(source, dest, new FileUtil.SyncOptions());
+			assertFalse(result.isSuccessful());
+			assertEquals(Set.of(source.resolve("blocked")), result.getFailures().keySet());
+			assertEquals(List.of(dest.resolve("other.txt")), result.getCopied());
+			assertTrue(Files.isRegularFile(dest.resolve("blocked")));
+		} finally {
+			FileUtil.deleteTree(source.toFile());
+			FileUtil.deleteTree(dest.toFile());
+		}
+	}
+
+	@Test
+	void atomicWritesWork() throws IOException {
+		Path dir = Files.createTempDirectory("atomic");
+		try {
+			Path file = dir.resolve("data.txt");
+			FileUtil.writeAllTextAtomically(file, "first", StandardCharsets.UTF_8, true);
+			FileUtil.writeAllLinesAtomically(file.toFile(), new String[] {"a", "b"}, StandardCharsets.UTF_8, false);
+			assertEquals("a" + System.lineSeparator() + "b", Files.readString(file));
+
+			if (Files.getFileAttributeView(file, PosixFileAttributeView.class) != null) {
+				Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r--r--");
+				Files.setPosixFilePermissions(file, permissions);
+				FileUtil.writeAllTextAtomically(file, "again", StandardCharsets.UTF_8, false);
+				assertEquals(permissions, Files.getPosixFilePermissions(file));
+			}
+
+			try (AtomicWriteBatch batch = FileUtil.newAtomicWriteBatch(3)) {
+				batch.writeAllText(dir.resolve("one.txt"), "1", StandardCharsets.UTF_8);
+				batch.writeAllText(dir.resolve("two.txt"), "2", StandardCharsets.UTF_8);
+				assertFalse(Files.exists(dir.resolve("one.txt")));
+				batch.writeAllText(dir.resolve("three.txt"), "3", StandardCharsets.UTF_8);
+				assertEquals(0, batch.getPendingCount());
+				assertEquals("1", Files.readString(dir.resolve("one.txt")));
+				batch.writeAllText(file, "last", StandardCharsets.UTF_8);
+			}
+
+			assertEquals("last", Files.readString(file));
+			try (Stream<Path> paths = Files.list(dir)) {
+				assertEquals(4, paths.count());
+			}
+		} finally {
+			FileUtil.deleteTree(dir.toFile());
+		}
+	}
+
+	@Test
+	void zipAndUnzipWork() throws IOException {
+		Path dir = Files.createTempDirectory("zip");
+		try {
+			Path source = Files.createDirectories(dir.resolve("source/a/c"));
+			Files.createDirectories(dir.resolve("source/empty"));
+			Files.writeString(source.getParent().resolve("b.txt"), "bee", StandardCharsets.UTF_8);
+			Files.writeString(source.resolve("d.txt"), "d".repeat(10_000), StandardCharsets.UTF_8);
+			byte[] big = new byte[17 * 1024 * 1024];
+			for (int i = 0; i < big.length; ++i) big[i] = (byte) (i % 251);
+			Files.write(dir.resolve("source/big.bin"), big);
+			Files.writeString(dir.resolve("source/skip.log"), "skipped", StandardCharsets.UTF_8);
+
+			FileUtil.ExtensionFilter filter = new FileUtil.ExtensionFilter(".txt, .bin");
+			for (int parallelism : new int[] {1, 4}) {
+				Path zipFile = dir.resolve("out" + parallelism + ".zip");
+				try (OutputStream output = Files.newOutputStream(zipFile)) {
+					assertEquals(3, FileUtil.zip(dir.resolve("source"), filter, output, parallelism));
+				}
+
+				try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+					Set<String> names = zip.stream().map(ZipEntry::getName).collect(Collectors.toSet());
+					assertEquals(Set.of("a/", "a/c/", "empty/", "a/b.txt", "a/c/d.txt", "big.bin"), names);
+				}
+
+				Path target = dir.resolve("target" + parallelism);
+				try (InputStream input = Files.newInputStream(zipFile)) {
+					assertEquals(3, FileUtil.unzip(input, target));
+				}
+				assertEquals("bee", Files.readString(target.resolve("a/b.txt")));
+				assertEquals("d".repeat(10_000), Files.readString(target.resolve("a/c/d.txt")));
+				assertArrayEquals(big, Files.readAllBytes(target.resolve("big.bin")));
+				assertTrue(Files.isDirectory(target.resolve("empty")));
+			}
+		} finally {
+			FileUtil.deleteTree(dir.toFile());
+		}
+	}
+
+	@Test
+	void unzipRejectsEntriesOutsideTarget() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			zip.putNextEntry(new ZipEntry("../evil.txt"));
+			zip.write(1);
+			zip.closeEntry();
+		}
+
+		Path dir = Files.createTempDirectory("unzip");
+		try {
+			assertThrows(ZipException.class, () -> FileUtil.unzip(new ByteArrayInputStream(bytes.toByteArray()), dir));
+			assertFalse(Files.exists(dir.resolveSibling("evil.txt")));
+		} finally {
+			FileUtil.deleteTree(dir.toFile());
+		}
+	}
+
 	@Test
 	void deleteDotGitAndDotVSDirs() {
 		List<String> fileList = new LinkedList<>();
@@ -196,4 +737,137 @@ class FileUtilTest {
 		assertTrue(filter.accept(file3));
 		assertTrue(filter.accept(file4));
 	}
+
+	@Test
+	void extensionFilterIgnoresCaseAndMissingExtensions() {
+		FileUtil.ExtensionFilter filter = new FileUtil.ExtensionFilter(new String[] {".JPG", ".tar.gz", ".txt", ""});
+		assertTrue(filter.matches("photos/holiday.jpg"));
+		assertTrue(filter.matches("README"));
+		assertTrue(filter.matches("notes.TXT"));
+		assertFalse(filter.matches("archive.tar.gz"));
+		assertFalse(filter.matches("v1.2" + File.separator + "data.bin"));
+		assertFalse(new FileUtil.ExtensionFilter(new String[0]).matches("a.txt"));
+	}
+
+	@Test
+	void globFilterAccepts() {
+		FileUtil.GlobFilter filter = new FileUtil.GlobFilter("*.{jpg,png}", "**/dummy-*.pdf");
+		assertTrue(filter.accept(file1));
+		assertTrue(filter.accept(file2));
+		assertTrue(filter.accept(file3));
+		assertTrue(filter.accept(file4));
+		assertFalse(new FileUtil.GlobFilter("*.png").accept(file1));
+		assertEquals(FileUtil.FilterCost.NAME, new FileUtil.GlobFilter("*.png").getCost());
+		assertEquals(FileUtil.FilterCost.PATH, filter.getCost());
+	}
+
+	@Test
+	void compositeFiltersAcceptAndCheckCheapFiltersFirst() throws IOException {
+		List<String> calls = new ArrayList<>();
+		FileUtil.PathFilter expensive = new FileUtil.PathFilter() {
+			@Override
+			public boolean accept(Path path, BasicFileAttributes attributes) {
+				calls.add(path.getFileName().toString());
+				return true;
+			}
+
+			@Override
+			public FileUtil.FilterCost getCost() {
+				return FileUtil.FilterCost.CONTENT;
+			}
+		};
+
+		FileUtil.CompositeFilter images = expensive.and(new FileUtil.ExtensionFilter(".jpg,.png"));
+		assertTrue(images.accept(file1));
+		assertFalse(images.accept(file4));
+		assertEquals(List.of(file1.getName()), calls);
+		assertEquals(FileUtil.FilterCost.CONTENT, images.getCost());
+
+		FileUtil.CompositeFilter small = new FileUtil.SizeFilter(0, 1024).or(new FileUtil.GlobFilter("*.pdf"));
+		assertTrue(small.accept(file4));
+		assertFalse(small.accept(file1));
+
+		FileUtil.CompositeFilter notPdf = new FileUtil.GlobFilter("*.pdf").negate();
+		assertTrue(notPdf.accept(file1));
+		assertFalse(notPdf.accept(file4));
+		assertTrue(notPdf.accept(file3));
+
+		try (Stream<Path> paths = FileUtil.stream(file3, FileUtil.CompositeFilter.allOf(notPdf, images))) {
+			assertTrue(paths.allMatch(path -> !path.toString().endsWith(".pdf")));
+		}
+	}
+
+	@Test
+	void tailReadsLastLines() throws IOException {
+		Path file = Files.createTempFile("tail", ".log");
+		try {
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < 5000; ++i)
+				text.append("line ").append(i).append(i % 2 == 0 ? "\r\n" : "\n");
+			Files.writeString(file, text, StandardCharsets.UTF_8);
+
+			assertArrayEquals(new String[] {"line 4997", "line 4998", "line 4999"},
+					FileUtil.tail(file, 3, StandardCharsets.UTF_8));
+			assertEquals(5000, FileUtil.tail(file.toFile(), 10_000, StandardCharsets.UTF_8).length);
+
+			Files.writeString(file, "first\nÉlève", StandardCharsets.UTF_8);
+			assertArrayEquals(new String[] {"Élève"}, FileUtil.tail(file, 1, StandardCharsets.UTF_8));
+			assertArrayEquals(new String[0], FileUtil.tail(file, 0, StandardCharsets.UTF_8));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void followStreamsAppendedLinesAcrossRotation() throws IOException, InterruptedException {
+		Path dir = Files.createTempDirectory("follow");
+		Path file = dir.resolve("app.log");
+		List<String> lines = new CopyOnWriteArrayList<>();
+
+		try {
+			Files.writeString(file, "old 1\nold 2\n", StandardCharsets.UTF_8);
+			try (FileFollower follower = FileUtil.follow(file, StandardCharsets.UTF_8, lines::add, 1, 20)) {
+				Files.writeString(file, "new 1\nnew", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+				Files.writeString(file, " 2\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+				awaitLines(lines, 3);
+
+				Files.move(file, dir.resolve("app.log.1"));
+				Files.writeString(file, "rotated 1\n", StandardCharsets.UTF_8);
+				awaitLines(lines, 4);
+				assertFalse(follower.isClosed());
+			}
+
+			assertEquals(List.of("old 2", "new 1", "new 2", "rotated 1"), lines);
+		} finally {
+			FileUtil.deleteTree(dir.toFile());
+		}
+	}
+
+	@Test
+	void followSurvivesFailingConsumer() throws IOException, InterruptedException {
+		Path file = Files.createTempFile("follow", ".log");
+		List<String> lines = new CopyOnWriteArrayList<>();
+
+		FileUtil.LineConsumer consumer = line -> {
+			if (line.equals("bad")) throw new IllegalStateException("Consumer failure");
+			lines.add(line);
+		};
+
+		try (FileFollower follower = FileUtil.follow(file, StandardCharsets.UTF_8, consumer, 0, 20)) {
+			Files.writeString(file, "bad\ngood\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+			awaitLines(lines, 1);
+			assertFalse(follower.isClosed());
+			assertEquals(List.of("good"), lines);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static void awaitLines(List<String> lines, int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (lines.size() < count && System.nanoTime() < deadline)
+			Thread.sleep(20);
+
+		assertTrue(lines.size() >= count, "Timed out waiting for lines: " + lines);
+	}
 }
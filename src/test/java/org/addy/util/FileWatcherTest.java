@@ -0,0 +1,87 @@
+package org.addy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileWatcherTest {
+	@Test
+	void watchReportsDebouncedChanges() throws IOException, InterruptedException {
+		Path root = Files.createTempDirectory("watch");
+		List<List<FileWatcher.ChangeEvent>> batches = new CopyOnWriteArrayList<>();
+
+		try (FileWatcher watcher = FileUtil.watch(root, new FileUtil.ExtensionFilter(".jpg"), batches::add,
+				100, Runnable::run)) {
+			Files.write(root.resolve("a.jpg"), new byte[] {1});
+			Files.write(root.resolve("a.jpg"), new byte[] {2});
+			Files.write(root.resolve("b.txt"), new byte[] {3});
+			Files.createDirectories(root.resolve("sub"));
+			Files.write(root.resolve("sub/c.jpg"), new byte[] {4});
+
+			Map<Path, FileWatcher.ChangeKind> changes = awaitChanges(batches, 2);
+			assertEquals(FileWatcher.ChangeKind.CREATED, changes.get(root.resolve("a.jpg")));
+			assertEquals(FileWatcher.ChangeKind.CREATED, changes.get(root.resolve("sub/c.jpg")));
+			assertFalse(changes.containsKey(root.resolve("b.txt")));
+
+			batches.clear();
+			Files.delete(root.resolve("a.jpg"));
+			changes = awaitChanges(batches, 1);
+			assertEquals(FileWatcher.ChangeKind.DELETED, changes.get(root.resolve("a.jpg")));
+			assertFalse(watcher.isClosed());
+		} finally {
+			FileUtil.deleteTree(root.toFile());
+		}
+	}
+
+	@Test
+	void watchSurvivesFailingListener() throws IOException, InterruptedException {
+		Path root = Files.createTempDirectory("watch");
+		List<List<FileWatcher.ChangeEvent>> batches = new CopyOnWriteArrayList<>();
+		AtomicInteger calls = new AtomicInteger();
+
+		FileWatcher.ChangeListener listener = changes -> {
+			if (calls.getAndIncrement() == 0) throw new IllegalStateException("Listener failure");
+			batches.add(changes);
+		};
+
+		try (FileWatcher watcher = FileUtil.watch(root, file -> true, listener, 50, Runnable::run)) {
+			Files.write(root.resolve("first.txt"), new byte[] {1});
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+			while (calls.get() == 0 && System.nanoTime() < deadline)
+				Thread.sleep(20);
+
+			Files.write(root.resolve("second.txt"), new byte[] {2});
+			Map<Path, FileWatcher.ChangeKind> changes = awaitChanges(batches, 1);
+			assertTrue(changes.containsKey(root.resolve("second.txt")));
+			assertFalse(watcher.isClosed());
+		} finally {
+			FileUtil.deleteTree(root.toFile());
+		}
+	}
+
+	private static Map<Path, FileWatcher.ChangeKind> awaitChanges(List<List<FileWatcher.ChangeEvent>> batches, int count)
+			throws InterruptedException {
+		Map<Path, FileWatcher.ChangeKind> changes = new ConcurrentHashMap<>();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+
+		while (changes.size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+			batches.forEach(batch -> batch.forEach(event -> changes.put(event.getPath(), event.getKind())));
+		}
+
+		assertTrue(changes.size() >= count, "Timed out waiting for changes: " + changes);
+		return changes;
+	}
+}
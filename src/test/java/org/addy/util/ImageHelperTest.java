@@ -4,10 +4,15 @@ import org.junit.jupiter.api.*;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -92,4 +97,243 @@ class ImageHelperTest {
 			e.printStackTrace();
 		}
 	}
+	
+	@Test
+	@Order(5)
+	void grayScaleWorksOnBackingArrays() {
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+				BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR};
+		
+		for (int type : types) {
+			BufferedImage image = sampleImage(600, 500, type);
+			BufferedImage gray = ImageHelper.grayScale(sampleImage(600, 500, type), true);
+			assertEquals(BufferedImage.TYPE_BYTE_GRAY, gray.getType());
+			
+			assertSame(image, ImageHelper.grayScale(image));
+			assertEquals(type, image.getType());
+			
+			for (int[] point : new int[][] {{0, 0}, {599, 0}, {123, 456}, {599, 499}}) {
+				int rgb = image.getRGB(point[0], point[1]);
+				int red = (rgb >> 16) & 0xFF;
+				assertEquals(red, (rgb >> 8) & 0xFF);
+				assertEquals(red, rgb & 0xFF);
+				assertEquals(expectedLuma(point[0], point[1]), red);
+				assertEquals(red, gray.getRaster().getSample(point[0], point[1], 0));
+			}
+		}
+	}
+	
+	@Test
+	@Order(6)
+	void flipKeepsImageTypeAndMovesPixels() {
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+				BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_565_RGB};
+		
+		for (int type : types) {
+			BufferedImage image = sampleImage(601, 500, type);
+			BufferedImage subImage = image.getSubimage(10, 20, 300, 200);
+			
+			for (BufferedImage source : new BufferedImage[] {image, subImage}) {
+				int width = source.getWidth();
+				int height = source.getHeight();
+				BufferedImage x = (BufferedImage) ImageHelper.flip(source, ImageHelper.AXIS_X);
+				BufferedImage y = (BufferedImage) ImageHelper.flip(source, ImageHelper.AXIS_Y);
+				BufferedImage xy = (BufferedImage) ImageHelper.flip(source, ImageHelper.AXIS_XY);
+				assertEquals(type, x.getType());
+				assertEquals(type, xy.getType());
+				
+				for (int[] point : new int[][] {{0, 0}, {width - 1, 0}, {17, 123}, {width - 1, height - 1}}) {
+					int rgb = source.getRGB(point[0], point[1]);
+					assertEquals(rgb, x.getRGB(point[0], height - 1 - point[1]));
+					assertEquals(rgb, y.getRGB(width - 1 - point[0], point[1]));
+					assertEquals(rgb, xy.getRGB(width - 1 - point[0], height - 1 - point[1]));
+				}
+			}
+		}
+	}
+	
+	@Test
+	@Order(7)
+	void reorientMapsAllExifOrientations() {
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_USHORT_565_RGB};
+		
+		for (int type : types) {
+			BufferedImage image = sampleImage(300, 200, type);
+			BufferedImage expected = image;
+			
+			for (int orientation = ImageHelper.ORIENTATION_NORMAL; orientation <= ImageHelper.ORIENTATION_ROTATE_CCW; ++orientation) {
+				BufferedImage actual = ImageHelper.reorient(image, orientation);
+				assertEquals(type, actual.getType());
+				
+				switch (orientation) {
+					case ImageHelper.ORIENTATION_FLIP_HORIZONTAL:
+						expected = (BufferedImage) ImageHelper.flip(image, ImageHelper.AXIS_Y);
+						break;
+					case ImageHelper.ORIENTATION_ROTATE_180:
+						expected = (BufferedImage) ImageHelper.flip(image, ImageHelper.AXIS_XY);
+						break;
+					case ImageHelper.ORIENTATION_FLIP_VERTICAL:
+						expected = (BufferedImage) ImageHelper.flip(image, ImageHelper.AXIS_X);
+						break;
+					case ImageHelper.ORIENTATION_FLIP_VERTICAL_ROTATE_CW:
+						expected = (BufferedImage) ImageHelper.rotate(ImageHelper.flip(image, ImageHelper.AXIS_X), ImageHelper.CW);
+						break;
+					case ImageHelper.ORIENTATION_ROTATE_CW:
+						expected = (BufferedImage) ImageHelper.rotate(image, ImageHelper.CW);
+						break;
+					case ImageHelper.ORIENTATION_FLIP_HORIZONTAL_ROTATE_CW:
+						expected = (BufferedImage) ImageHelper.rotate(ImageHelper.flip(image, ImageHelper.AXIS_Y), ImageHelper.CW);
+						break;
+					case ImageHelper.ORIENTATION_ROTATE_CCW:
+						expected = (BufferedImage) ImageHelper.rotate(image, ImageHelper.CCW);
+						break;
+				}
+				
+				assertEquals(expected.getWidth(), actual.getWidth());
+				assertEquals(expected.getHeight(), actual.getHeight());
+				for (int y = 0; y < actual.getHeight(); y += 7) {
+					for (int x = 0; x < actual.getWidth(); x += 5)
+						assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+				}
+			}
+		}
+		
+		BufferedImage image = sampleImage(300, 200, BufferedImage.TYPE_INT_RGB);
+		BufferedImage rotated = (BufferedImage) ImageHelper.rotate(image, ImageHelper.CW);
+		assertEquals(image.getRGB(0, 199), rotated.getRGB(0, 0));
+		assertEquals(image.getRGB(0, 0), rotated.getRGB(199, 0));
+		assertEquals(image.getRGB(299, 199), rotated.getRGB(0, 299));
+	}
+	
+	@Test
+	@Order(8)
+	void canRewriteExifOrientationInPlace() throws IOException {
+		File copy = File.createTempFile("exif", ".jpg");
+		File corrected = File.createTempFile("exif-corrected", ".jpg");
+		try {
+			File source = new File("files/jordan.jpg");
+			FileUtil.copyFile(source, copy);
+			
+			assertTrue(ImageHelper.setExifOrientation(copy, ImageHelper.ORIENTATION_ROTATE_CCW));
+			assertEquals(ImageHelper.ORIENTATION_ROTATE_CCW, ImageHelper.getOrientationFromExif(copy));
+			assertEquals(source.length(), copy.length());
+			
+			ImageHelper.correctOrientation(copy, corrected, true);
+			assertEquals(ImageHelper.ORIENTATION_ROTATE_CCW, ImageHelper.getOrientationFromExif(corrected));
+			assertArrayEquals(FileUtil.readAllBytes(copy), FileUtil.readAllBytes(corrected));
+			
+			assertTrue(ImageHelper.setExifOrientation(corrected, ImageHelper.ORIENTATION_FLIP_HORIZONTAL));
+			ImageHelper.correctOrientation(corrected, corrected, true);
+			assertEquals(ImageHelper.ORIENTATION_FLIP_HORIZONTAL, ImageHelper.getOrientationFromExif(corrected));
+			assertEquals(source.length(), corrected.length());
+			
+			ImageHelper.correctOrientation(copy, corrected, false);
+			assertEquals(ImageHelper.ORIENTATION_UNDETERMINED, ImageHelper.getOrientationFromExif(corrected));
+			
+			assertTrue(ImageHelper.setExifOrientation(copy, ImageHelper.getOrientationFromExif(source)));
+			assertArrayEquals(FileUtil.readAllBytes(source), FileUtil.readAllBytes(copy));
+			assertFalse(ImageHelper.setExifOrientation(new File("files/image-from-internet.png"), 1));
+		} finally {
+			copy.delete();
+			corrected.delete();
+		}
+	}
+	
+	@Test
+	@Order(9)
+	void resizeFiltersWithoutAliasing() {
+		int[] qualities = {ImageHelper.QUALITY_FAST, ImageHelper.QUALITY_BALANCED, ImageHelper.QUALITY_HIGH};
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+				BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_565_RGB};
+		
+		for (int type : types) {
+			BufferedImage checkerboard = new BufferedImage(640, 480, type);
+			for (int y = 0; y < 480; ++y) {
+				for (int x = 0; x < 640; ++x)
+					checkerboard.setRGB(x, y, ((x + y) & 1) == 0 ? 0xFFFFFFFF : 0xFF000000);
+			}
+			
+			for (int quality : qualities) {
+				BufferedImage resized = ImageHelper.resize(checkerboard, 100, 100, true, quality, BufferedImage.TYPE_CUSTOM);
+				assertEquals(type, resized.getType());
+				assertEquals(100, resized.getWidth());
+				assertEquals(75, resized.getHeight());
+				
+				for (int y = 0; y < 75; y += 3) {
+					for (int x = 0; x < 100; x += 3) {
+						int red = type == BufferedImage.TYPE_BYTE_GRAY ? resized.getRaster().getSample(x, y, 0)
+								: (resized.getRGB(x, y) >> 16) & 0xFF;
+						assertTrue(Math.abs(red - 128) <= 8, "quality " + quality + ", type " + type + ": " + red);
+					}
+				}
+			}
+		}
+		
+		BufferedImage translucent = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 200; ++y) {
+			for (int x = 0; x < 200; ++x)
+				translucent.setRGB(x, y, x < 100 ? 0x00FF0000 : 0xFF0000FF);
+		}
+		
+		BufferedImage resized = ImageHelper.resize(translucent, 50, 50, false, ImageHelper.QUALITY_HIGH,
+				BufferedImage.TYPE_CUSTOM);
+		assertEquals(0, resized.getRGB(10, 10) >>> 24);
+		assertEquals(0xFF0000FF, resized.getRGB(40, 10));
+		assertEquals(0xFF, resized.getRGB(25, 10) & 0xFF);
+		assertEquals(0, (resized.getRGB(25, 10) >> 16) & 0xFF);
+		
+		BufferedImage upscaled = ImageHelper.resize(sampleImage(40, 30, BufferedImage.TYPE_3BYTE_BGR), 160, 160, false,
+				ImageHelper.QUALITY_BALANCED, BufferedImage.TYPE_INT_RGB);
+		assertEquals(BufferedImage.TYPE_INT_RGB, upscaled.getType());
+		assertEquals(160, upscaled.getWidth());
+		assertEquals(160, upscaled.getHeight());
+		assertEquals(BufferedImage.TYPE_INT_RGB,
+				((BufferedImage) ImageHelper.resize(translucent, 20, 20, false)).getType());
+	}
+	
+	@Test
+	@Order(10)
+	void decodeSubsamplesToTargetSize() throws IOException {
+		File source = new File("files/image-from-pexels.jpg");
+		BufferedImage full = ImageIO.read(source);
+		int width = full.getWidth();
+		int height = full.getHeight();
+		
+		BufferedImage same = ImageHelper.decode(source, 0, 0);
+		assertEquals(width, same.getWidth());
+		assertEquals(height, same.getHeight());
+		
+		BufferedImage small = ImageHelper.decode(source, 40, 40);
+		int factor = Math.max(1, Math.min(width / 40, height / 40) / 2);
+		assertEquals((width + factor - 1) / factor, small.getWidth());
+		assertEquals((height + factor - 1) / factor, small.getHeight());
+		assertTrue(small.getWidth() >= 40 && small.getHeight() >= 40);
+		
+		Rectangle region = new Rectangle(width / 4, height / 4, width / 2, height / 2);
+		BufferedImage quarter = ImageHelper.decode(source, region, 0, 0);
+		assertEquals(width / 2, quarter.getWidth());
+		assertEquals(height / 2, quarter.getHeight());
+		assertEquals(full.getRGB(width / 4 + 10, height / 4 + 10), quarter.getRGB(10, 10));
+		
+		BufferedImage thumbnail = ImageHelper.makeThumbnail(source, 64, 64, ImageHelper.QUALITY_HIGH);
+		assertEquals(64, Math.max(thumbnail.getWidth(), thumbnail.getHeight()));
+		
+		File rotated = new File("files/jordan.jpg");
+		BufferedImage corrected = ImageHelper.reorient(ImageIO.read(rotated), ImageHelper.getOrientationFromExif(rotated));
+		thumbnail = ImageHelper.makeThumbnail(rotated, 64, 64, ImageHelper.QUALITY_BALANCED);
+		assertEquals(corrected.getWidth() > corrected.getHeight(), thumbnail.getWidth() > thumbnail.getHeight());
+	}
+	
+	private static BufferedImage sampleImage(int width, int height, int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x)
+				image.setRGB(x, y, 0xFF000000 | ((x & 0xFF) << 16) | ((y & 0xFF) << 8) | ((x + y) & 0xFF));
+		}
+		return image;
+	}
+	
+	private static int expectedLuma(int x, int y) {
+		return (int) Math.round(0.299 * (x & 0xFF) + 0.587 * (y & 0xFF) + 0.114 * ((x + y) & 0xFF));
+	}
 }